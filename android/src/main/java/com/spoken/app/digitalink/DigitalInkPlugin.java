@@ -1,5 +1,12 @@
 package com.spoken.app.digitalink;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
@@ -11,24 +18,24 @@ import com.google.mlkit.common.MlKitException;
 import com.google.mlkit.common.model.DownloadConditions;
 import com.google.mlkit.common.model.RemoteModelManager;
 
-import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognition;
 import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognitionModel;
 import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognitionModelIdentifier;
 import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognizer;
-import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognizerOptions;
 import com.google.mlkit.vision.digitalink.recognition.Ink;
+import com.google.mlkit.vision.digitalink.recognition.RecognitionCandidate;
 import com.google.mlkit.vision.digitalink.recognition.RecognitionContext;
 import com.google.mlkit.vision.digitalink.recognition.WritingArea;
 
 import org.json.JSONException;
 
-import java.util.Iterator;
+import java.io.File;
+import java.util.HashSet;
 import java.util.Set;
 
 @CapacitorPlugin(name = "DigitalInk")
 public class DigitalInkPlugin extends Plugin {
-    // Ink builder holds stroke data from various logStrokes() calls
-    Ink.Builder inkBuilder = Ink.builder();
+    // Stroke store holds stroke data from various logStrokes() calls, spilling it to disk when asked
+    StrokeStore strokeStore;
 
     // Model manager that manages already downloaded models, downloading models, and deleting models
     RemoteModelManager remoteModelManager = RemoteModelManager.getInstance();
@@ -36,8 +43,72 @@ public class DigitalInkPlugin extends Plugin {
     // Model defines what language model the recognizer uses to recognize
     DigitalInkRecognitionModel model;
 
-    // Recognizer uses stroke data to infer from the selected DigitalInk model
-    DigitalInkRecognizer recognizer;
+    // Recognizers use stroke data to infer from the selected DigitalInk model, one per model
+    RecognizerCache recognizerCache = new RecognizerCache();
+
+    // Orders recognition requests by priority and lets the client cancel them
+    RecognitionQueue recognitionQueue = new RecognitionQueue();
+
+    // Classifies single strokes as editing gestures from their geometry alone
+    GestureClassifier gestureClassifier = new GestureClassifier();
+
+    // Tracks model usage and evicts least recently used models when managed mode is on
+    ModelLifecycleManager lifecycleManager;
+
+    // Geometric gesture confidence needed to skip text recognition when the call doesn't set one
+    static final float DEFAULT_GESTURE_CONFIDENCE = 0.8f;
+
+    // How long a recognizer may sit unused before it's closed, in ms
+    long idleTimeout = 60000;
+
+    // How long the app may stay in the background before idle recognizers are closed
+    // and strokes are spilled to disk, in ms
+    long backgroundTimeout = 10000;
+
+    // Whether strokes are spilled to disk in the background and on memory pressure
+    boolean spillStrokes = true;
+
+    // Runs the idle/background release tasks on the main thread
+    Handler releaseHandler = new Handler(Looper.getMainLooper());
+
+    // Closes recognizers that went unused for idleTimeout, and checks again while any are open
+    Runnable idleRelease = new Runnable() {
+        @Override
+        public void run() {
+            recognizerCache.closeIdle(idleTimeout);
+
+            if (!recognizerCache.isEmpty()) {
+                // busy recognizers get checked again later, at most once a second
+                releaseHandler.postDelayed(this, Math.max(idleTimeout, 1000));
+            }
+        }
+    };
+
+    // Frees what we can once the app has been in the background for backgroundTimeout
+    Runnable backgroundRelease = () -> {
+        recognizerCache.closeIdle(0);
+
+        if (spillStrokes) {
+            strokeStore.spill();
+        }
+    };
+
+    // Reacts to the system asking apps to trim memory
+    ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            releaseForMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            releaseForMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    };
 
     // instantiate recognizer to default en-US model
     public DigitalInkPlugin() {
@@ -50,11 +121,6 @@ public class DigitalInkPlugin extends Plugin {
 
             // download the default model
             remoteModelManager.download(model, new DownloadConditions.Builder().build());
-
-            // set recognizer to use default en-US
-            recognizer = DigitalInkRecognition.getClient(
-                DigitalInkRecognizerOptions.builder(model).build()
-            );
         }
         catch (MlKitException error) {
             System.out.println(" ");
@@ -64,6 +130,78 @@ public class DigitalInkPlugin extends Plugin {
         }
     }
 
+    @Override
+    public void load() {
+        lifecycleManager = new ModelLifecycleManager(getContext(), remoteModelManager, recognizerCache,
+                model != null ? model.getModelIdentifier().getLanguageTag() : null);
+
+        // strokes spilled before the process was killed stay on disk until restoreStrokes() is called
+        strokeStore = new StrokeStore(new File(getContext().getCacheDir(), "digitalink-strokes.bin"));
+
+        getContext().registerComponentCallbacks(memoryCallbacks);
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+
+        releaseHandler.removeCallbacks(backgroundRelease);
+        releaseHandler.postDelayed(backgroundRelease, backgroundTimeout);
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+
+        // back in the foreground before the timeout, nothing needs releasing
+        // (spilled strokes are restored when they're next used)
+        releaseHandler.removeCallbacks(backgroundRelease);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        releaseHandler.removeCallbacks(backgroundRelease);
+        releaseHandler.removeCallbacks(idleRelease);
+
+        getContext().unregisterComponentCallbacks(memoryCallbacks);
+
+        recognitionQueue.cancelAll("Plugin was destroyed.");
+        recognizerCache.closeAll();
+
+        // keep the strokes for when the app comes back, the pending write still completes
+        if (spillStrokes) {
+            strokeStore.spill();
+        }
+        strokeStore.shutdown();
+
+        super.handleOnDestroy();
+    }
+
+    public void releaseForMemory(int level) {
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // just backgrounded, backgroundRelease takes care of this after backgroundTimeout
+            return;
+        }
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // native model memory is the bulk of what we hold, recognizers reopen on demand
+            recognizerCache.closeIdle(0);
+        }
+
+        if (spillStrokes && level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // the process is on the list to be killed, get the strokes out of memory now
+            strokeStore.spill();
+        }
+    }
+
+    // returns the recognizer once ML Kit is done with it and schedules closing it when idle
+    public void releaseRecognizer(DigitalInkRecognitionModel recognizerModel) {
+        recognizerCache.release(recognizerModel);
+
+        releaseHandler.removeCallbacks(idleRelease);
+        releaseHandler.postDelayed(idleRelease, idleTimeout);
+    }
+
     public void initializePlugin(PluginCall call) {
         call.unimplemented("Not implemented on Android.");
     }
@@ -84,29 +222,10 @@ public class DigitalInkPlugin extends Plugin {
         return floatArr;
     }
 
-    public DigitalInkRecognitionModel createRemoteModel(String langTag, PluginCall call) {
-        try {
-            // instantiate identifier
-            DigitalInkRecognitionModelIdentifier newIdentifier =
-                    DigitalInkRecognitionModelIdentifier.fromLanguageTag(langTag);
-
-            // build the model from the valid language tag
-            DigitalInkRecognitionModel newModel =
-                    DigitalInkRecognitionModel.builder(newIdentifier).build();
-
-            return newModel;
-        }
-        catch (MlKitException error) {
-            call.reject(error.toString());
-
-            return null;
-        }
-    }
-
     @PluginMethod
     public void erase(PluginCall call) {
-        // reset the ink builder
-        inkBuilder = Ink.builder();
+        // reset the stored strokes
+        strokeStore.clear();
 
         // instantiate response object
         JSObject res = new JSObject();
@@ -117,6 +236,30 @@ public class DigitalInkPlugin extends Plugin {
         call.resolve(res);
     }
 
+    @PluginMethod
+    public void restoreStrokes(PluginCall call) {
+        /*
+         * Response structure:
+         *
+         * {
+         *   ok: boolean,
+         *   msg: string,
+         *   strokes: number
+         * }
+         *
+         * */
+        JSObject res = new JSObject();
+
+        int restored = strokeStore.restoreLeftover();
+
+        res.put("ok", restored > 0);
+        res.put("msg", restored > 0
+                ? "Restored " + restored + " strokes from the previous session."
+                : "No strokes left from a previous session.");
+        res.put("strokes", restored);
+        call.resolve(res);
+    }
+
     @PluginMethod
     public void logStrokes(PluginCall call) throws JSONException {
         JSObject res = new JSObject();
@@ -148,7 +291,7 @@ public class DigitalInkPlugin extends Plugin {
                 strokeBuilder.addPoint(point);
             }
             // build the stroke, and add the resulting stroke to the ink builder
-            inkBuilder.addStroke(strokeBuilder.build());
+            strokeStore.add(strokeBuilder.build());
 
             res.put("ok", true);
             res.put("msg", "(with time values) stroke added");
@@ -167,7 +310,7 @@ public class DigitalInkPlugin extends Plugin {
                 strokeBuilder.addPoint(point);
             }
             // build the stroke, and add the resulting stroke to the ink builder
-            inkBuilder.addStroke(strokeBuilder.build());
+            strokeStore.add(strokeBuilder.build());
 
             res.put("ok", true);
             res.put("msg", "(without time values) stroke added");
@@ -178,8 +321,8 @@ public class DigitalInkPlugin extends Plugin {
     @PluginMethod
     public void doRecognition(PluginCall call) {
         // build the ink to send to recognizer
-        // the ink builder should have all strokes from .addStroke() in logStrokes()
-        Ink ink = inkBuilder.build();
+        // the stroke store should have all strokes from .add() in logStrokes()
+        Ink ink = strokeStore.buildInk();
 
         RecognitionContext.Builder recognizerContextBuilder = RecognitionContext.builder();
 
@@ -196,11 +339,50 @@ public class DigitalInkPlugin extends Plugin {
 
         RecognitionContext recognizerContext = recognizerContextBuilder.build();
 
+        // queue the request; interactive requests go first, background ones wait for them
+        String priority = call.getString("priority", RecognitionQueue.INTERACTIVE);
+        String requestId = call.getString("requestId");
+
+        recognitionQueue.submit(call, requestId, priority,
+                request -> runRecognition(ink, recognizerContext, wSize, hSize, request));
+    }
+
+    public void runRecognition(Ink ink, RecognitionContext recognizerContext, Integer wSize, Integer hSize,
+                               RecognitionQueue.Request request) {
+        PluginCall call = request.call;
+
+        // gesture fast path: scratch-outs, taps, check marks and strike-throughs skip text recognition
+        if (call.getBoolean("detectGestures", false)) {
+            GestureClassifier.Gesture gesture = gestureClassifier.classify(ink, wSize, hSize);
+            float threshold = call.getFloat("gestureConfidence", DEFAULT_GESTURE_CONFIDENCE);
+            String gestureModel = call.getString("gestureModel", "");
+            JSArray gestureVocabulary = call.getArray("gestureVocabulary", new JSArray());
+
+            if (gesture != null && gesture.confidence >= threshold) {
+                // confident enough from the stroke geometry alone
+                resolveGesture(gesture.type, gesture.confidence, "geometry", request);
+                return;
+            }
+
+            // the model's labels only mean something through the vocabulary, without one a model pass
+            // could never be accepted and would just be paid for on top of text recognition
+            if (gesture != null && gestureModel.length() > 0 && gestureVocabulary.length() > 0
+                    && gesture.confidence >= threshold / 2) {
+                // ambiguous geometry, let the gesture/shape model decide before falling back to text
+                recognizeGesture(gestureModel, ink, recognizerContext, request);
+                return;
+            }
+        }
+
+        recognizeText(ink, recognizerContext, request);
+    }
+
+    public void recognizeText(Ink ink, RecognitionContext recognizerContext, RecognitionQueue.Request request) {
         String langTag = "";
         Boolean sentModel = false;
 
-        if (call.getString("model").length() > 0) {
-            langTag = call.getString("model");
+        if (request.call.getString("model", "").length() > 0) {
+            langTag = request.call.getString("model");
             sentModel = true;
         }
 
@@ -208,28 +390,28 @@ public class DigitalInkPlugin extends Plugin {
         if (sentModel) {
             // make language tag into the correct model type
             // also catches if langTag is not a legit model/misspelled, etc.
-            DigitalInkRecognitionModel newModel = createRemoteModel(langTag, call);
+            DigitalInkRecognitionModel newModel = buildModel(langTag);
 
-            if (newModel != null) {
+            if (newModel == null) {
+                request.reject(langTag + " is not a valid model.");
+            }
+            else {
                 String finalLangTag = langTag;
                 remoteModelManager.isModelDownloaded(newModel)
                 .addOnSuccessListener(result -> {
                     if (result) {
                         // the model is downloaded
-                        // set the recognizer to use the client-specified model
-                        recognizer = DigitalInkRecognition.getClient(
-                                DigitalInkRecognizerOptions.builder(newModel).build()
-                        );
+                        lifecycleManager.recordUse(newModel.getModelIdentifier().getLanguageTag());
 
                         // perform the recognition with client-specified model
-                        recognize(ink, recognizerContext, call);
+                        recognize(newModel, ink, recognizerContext, request);
                     } else {
                         // the model isn't downloaded yet
-                        call.reject(finalLangTag + " model is not downloaded.");
+                        request.reject(finalLangTag + " model is not downloaded.");
                     }
                 })
                 .addOnFailureListener(result -> {
-                    call.reject(result.getMessage());
+                    request.reject(result.getMessage());
                 });
             }
         } else {
@@ -238,27 +420,124 @@ public class DigitalInkPlugin extends Plugin {
                     .addOnSuccessListener(result -> {
                         if (result) {
                             // the default model is downloaded
-                            // set the recognizer to use the default model
-                            recognizer = DigitalInkRecognition.getClient(
-                                    DigitalInkRecognizerOptions.builder(model).build()
-                            );
+                            lifecycleManager.recordUse(model.getModelIdentifier().getLanguageTag());
 
                             // perform the recognition with default model
-                            recognize(ink, recognizerContext, call);
+                            recognize(model, ink, recognizerContext, request);
                         }
                         else {
                             // the default model isn't downloaded yet
-                            call.reject("default model '" + model.getModelIdentifier().getLanguageTag() + "' is not downloaded."
+                            request.reject("default model '" + model.getModelIdentifier().getLanguageTag() + "' is not downloaded."
                             );
                         }
                     })
                     .addOnFailureListener(result -> {
-                        call.reject(result.getMessage());
+                        request.reject(result.getMessage());
                     });
         }
     }
 
-    public void recognize(Ink ink, RecognitionContext context, PluginCall call) {
+    public void recognizeGesture(String langTag, Ink ink, RecognitionContext context, RecognitionQueue.Request request) {
+        DigitalInkRecognitionModel gestureModel = buildModel(langTag);
+
+        if (gestureModel == null) {
+            // gesture model is optional, an unusable one just means regular text recognition
+            recognizeText(ink, context, request);
+            return;
+        }
+
+        remoteModelManager.isModelDownloaded(gestureModel)
+                .addOnSuccessListener(downloaded -> {
+                    if (!downloaded) {
+                        recognizeText(ink, context, request);
+                        return;
+                    }
+
+                    if (request.isSettled()) {
+                        // cancelled while waiting on the model check, don't spend time recognizing
+                        request.reject("Recognition request was cancelled.");
+                        return;
+                    }
+
+                    lifecycleManager.recordUse(gestureModel.getModelIdentifier().getLanguageTag());
+
+                    recognizerCache.acquire(gestureModel).recognize(ink, context)
+                            .addOnCompleteListener(done -> releaseRecognizer(gestureModel))
+                            .addOnSuccessListener(result -> {
+                                RecognitionCandidate top = result.getCandidates().isEmpty()
+                                        ? null
+                                        : result.getCandidates().get(0);
+
+                                if (isAcceptedGesture(top, request.call)) {
+                                    resolveGesture(top.getText(), null, "model", request);
+                                } else {
+                                    // shape/autodraw models name nearly any ink, so anything else is text
+                                    recognizeText(ink, context, request);
+                                }
+                            })
+                            .addOnFailureListener(error -> recognizeText(ink, context, request));
+                })
+                .addOnFailureListener(error -> recognizeText(ink, context, request));
+    }
+
+    // whether a gesture model's top candidate may short-circuit text recognition: it has to be in the
+    // call's gestureVocabulary and, when the call sets gestureMaxScore, score at or below it (lower is better)
+    public boolean isAcceptedGesture(RecognitionCandidate candidate, PluginCall call) {
+        if (candidate == null) {
+            return false;
+        }
+
+        Set<String> vocabulary = new HashSet<>();
+        JSArray gestureVocabulary = call.getArray("gestureVocabulary", new JSArray());
+
+        for (int i = 0; i < gestureVocabulary.length(); i++) {
+            vocabulary.add(gestureVocabulary.optString(i));
+        }
+
+        if (!vocabulary.contains(candidate.getText())) {
+            return false;
+        }
+
+        Float maxScore = call.getFloat("gestureMaxScore");
+        Float score = candidate.getScore();
+
+        return maxScore == null || (score != null && score <= maxScore);
+    }
+
+    public void resolveGesture(String type, Float confidence, String source, RecognitionQueue.Request request) {
+        /*
+         * Response structure:
+         *
+         * {
+         *   ok: boolean,
+         *   msg: string,
+         *   results: { candidates: [], scores: [] },
+         *   gesture: { type: string, confidence: number | undefined, source: 'geometry' | 'model' }
+         * }
+         *
+         * */
+        JSObject results = new JSObject();
+        results.put("candidates", new JSArray());
+        results.put("scores", new JSArray());
+
+        JSObject gesture = new JSObject();
+        gesture.put("type", type);
+        gesture.put("source", source);
+        if (confidence != null) {
+            gesture.put("confidence", confidence);
+        }
+
+        JSObject res = new JSObject();
+        res.put("ok", true);
+        res.put("msg", "Gesture detected, text recognition skipped");
+        res.put("results", results);
+        res.put("gesture", gesture);
+
+        request.resolve(res);
+    }
+
+    public void recognize(DigitalInkRecognitionModel recognizerModel, Ink ink, RecognitionContext context,
+                          RecognitionQueue.Request request) {
         JSArray candidateText = new JSArray();
         JSArray candidateScore = new JSArray();
         JSObject candidateInfo = new JSObject();
@@ -278,8 +557,17 @@ public class DigitalInkPlugin extends Plugin {
          *
          * */
 
-        // recognize ink data
+        if (request.isSettled()) {
+            // cancelled while waiting on the model check, don't spend time recognizing
+            request.reject("Recognition request was cancelled.");
+            return;
+        }
+
+        // recognize ink data, the recognizer is (re)opened here if it was closed while idle
+        DigitalInkRecognizer recognizer = recognizerCache.acquire(recognizerModel);
+
         recognizer.recognize(ink, context)
+                .addOnCompleteListener(done -> releaseRecognizer(recognizerModel))
                 .addOnSuccessListener(
                         result -> {
                             // iterate through candidates and format into JSArray for response
@@ -297,383 +585,302 @@ public class DigitalInkPlugin extends Plugin {
                             res.put("results", candidateInfo);
 
                             // send responses back to the client
-                            call.resolve(res);
+                            request.resolve(res);
                         }
                 )
                 .addOnFailureListener(
                         error -> {
-                            call.reject(error.toString());
+                            request.reject(error.toString());
                         }
                 );
     }
 
     @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
     public void downloadSingularModel(PluginCall call) {
-        // Keep call alive so we can resolve() multiple times
-        call.setKeepAlive(true);
-
-        // instantiate response object
-        /*
-         * Response structure:
-         *
-         * {
-         *   ok: boolean,
-         *   msg: string,
-         * }
-         *
-         * */
-        JSObject res = new JSObject();
+        // job keeps the call alive and releases it after the final event
+        ModelJob job = new ModelJob(call, getBridge());
 
         if (call.getData().has("model")) {
             String langTag = call.getString("model");
 
-            // checks for whether or not provided language tag is a legit tag
-            try {
-                // instantiate identifier
-                DigitalInkRecognitionModelIdentifier newIdentifier =
-                        DigitalInkRecognitionModelIdentifier.fromLanguageTag(langTag);
-
-                // build the model from the valid language tag
-                DigitalInkRecognitionModel newModel =
-                        DigitalInkRecognitionModel.builder(newIdentifier).build();
-
-                // notifies client that model is being checked/downloaded
-                res.put("ok", true);
-                res.put("done", false);
-                res.put("msg", "Processing singular model " + langTag + "...");
-                call.resolve(res);
-
-                // check if model is already downloaded
-                String finalLangTag = langTag;
-                remoteModelManager.isModelDownloaded(newModel)
-                        .addOnCompleteListener(result -> {
-                            if (result.getResult()) {
-                                // if the model is already downloaded
-                                res.put("ok", true);
-                                res.put("done", true);
-                                res.put("msg", finalLangTag + " model is already downloaded.");
-                                call.resolve(res);
-                                call.setKeepAlive(false);
-                            }
-                            else {
-                                // if the model is not already downloaded, download the new model
-                                remoteModelManager
-                                        .download(newModel, new DownloadConditions.Builder().build())
-                                        .addOnCompleteListener(response -> {
-                                            if (response.isSuccessful()) {
-                                                // all is well, resolve the call
-                                                res.put("ok", true);
-                                                res.put("done", true);
-                                                res.put("msg", finalLangTag + " model was downloaded successfully.");
-                                                call.setKeepAlive(false);
-                                                call.resolve(res);
-                                            }
-                                        })
-                                        .addOnFailureListener(error -> {
-                                            // we failed, reject the call
-                                            call.setKeepAlive(false);
-                                            call.reject(error.toString());
-                                        });
-                            }
-                        });
-            }
-            catch (MlKitException error) {
-                call.setKeepAlive(false);
-                call.reject(error.toString());
-            }
+            // notifies client that model is being checked/downloaded
+            job.start(1, "Processing singular model " + langTag + "...");
+            downloadModel(langTag, job);
         } else {
-            call.reject("No params sent, no model downloaded");
-            call.setKeepAlive(false);
+            job.finish(false, "No params sent, no model downloaded");
         }
     }
 
     @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
     public void downloadMultipleModels(PluginCall call) {
-        // Keep call alive so we can resolve() multiple times
-        call.setKeepAlive(true);
-
-        // instantiate response object
-        /*
-         * Response structure:
-         *
-         * {
-         *   ok: boolean,
-         *   msg: string,
-         * }
-         *
-         * */
-        JSObject res = new JSObject();
+        // job keeps the call alive and releases it after the final event
+        ModelJob job = new ModelJob(call, getBridge());
 
         if (call.getData().has("models")) {
-            // get singular model specified from client
             JSArray langTags = call.getArray("models");
 
-            res.put("ok", true);
-            res.put("done", false);
-            res.put("msg", "Processing array of models...");
-            call.resolve(res);
+            job.start(langTags.length(), "Processing array of models...");
 
             for (int i = 0; i < langTags.length(); i++) {
-                Boolean lastModel = (i == langTags.length() - 1);
-
-                try {
-                    // get current langTag
-                    String langTag = (String) langTags.get(i);
-
-                    // instantiate identifier
-                    DigitalInkRecognitionModelIdentifier newIdentifier =
-                            DigitalInkRecognitionModelIdentifier.fromLanguageTag(langTag);
-
-                    // build the model from the valid language tag
-                    DigitalInkRecognitionModel newModel =
-                            DigitalInkRecognitionModel.builder(newIdentifier).build();
-
-                    // check if model is already downloaded
-                    remoteModelManager.isModelDownloaded(newModel)
-                            .addOnCompleteListener(result -> {
-                                if (result.getResult()) {
-                                    // if the model is already downloaded
-                                    res.put("ok", true);
-                                    res.put("done", lastModel);
-                                    res.put("msg", langTag + " model is already downloaded.");
-                                    call.resolve(res);
-
-                                    if (lastModel) {
-                                        // it's the last model, this should be last call resolve
-                                        call.setKeepAlive(false);
-                                    }
-                                } else {
-                                    // if the model is not already downloaded, download the new model
-                                    remoteModelManager
-                                            .download(newModel, new DownloadConditions.Builder().build())
-                                            .addOnCompleteListener(response -> {
-                                                if (response.isSuccessful()) {
-                                                    // all is well, resolve the call
-                                                    res.put("ok", true);
-                                                    res.put("done", lastModel);
-                                                    res.put("msg", langTag + " model was downloaded successfully.");
-
-                                                    call.resolve(res);
-
-                                                    if (lastModel) {
-                                                        // it's the last model, this should be last call resolve
-                                                        call.setKeepAlive(false);
-                                                    }
-                                                }
-                                            })
-                                            .addOnFailureListener(error -> {
-                                                // we failed, reject the call
-                                                call.reject(error.toString());
-
-                                                if (lastModel) {
-                                                    // it's the last model, this should be last call resolve
-                                                    call.setKeepAlive(false);
-                                                }
-                                            });
-                                }
-                            });
-                } catch (MlKitException error) {
-                    call.reject(error.toString());
-
-                    if (lastModel) {
-                        // it's the last model, this should be last call resolve
-                        call.setKeepAlive(false);
-                    }
-                } catch (JSONException error) {
-                    call.reject(error.toString());
-
-                    if (lastModel) {
-                        // it's the last model, this should be last call resolve
-                        call.setKeepAlive(false);
-                    }
-                }
+                downloadModel(langTags.optString(i, ""), job);
             }
         } else {
-            call.reject("No params sent, no models downloaded.");
+            job.finish(false, "No params sent, no models downloaded.");
         }
     }
 
     @PluginMethod(returnType = PluginMethod.RETURN_CALLBACK)
     public void deleteModel(PluginCall call) {
-        // instantiate response object
-        /*
-         * Response structure:
-         *
-         * {
-         *   ok: boolean,
-         *   msg: string,
-         * }
-         *
-         * */
-        JSObject res = new JSObject();
+        // job keeps the call alive and releases it after the final event
+        ModelJob job = new ModelJob(call, getBridge());
 
         if (call.getData().has("model")) {
-
             // we were sent a singular model
             String langTag = call.getString("model");
 
-            // create the model from the language tag provided
-            DigitalInkRecognitionModel toDelete = createRemoteModel(langTag, call);
-
-            if (toDelete == null) {
-                call.reject("Cannot delete invalid model identifier");
-            }
-            else {
-                // check if the model is downloaded. Also checks if language tag provided
-                // is a legit model, or is misspelled, etc.
-                remoteModelManager.isModelDownloaded(toDelete)
-                .addOnSuccessListener(result -> {
-                    if (result) {
-                        // model is in fact downloaded, we should delete it
-                        remoteModelManager.deleteDownloadedModel(toDelete)
-                                .addOnCompleteListener(deleted -> {
-                                    // send response
-                                    res.put("ok", true);
-                                    res.put("done", true);
-                                    res.put("msg", toDelete.getModelIdentifier().getLanguageTag() + " model deleted successfully.");
-                                    call.resolve(res);
-                                });
-                    }
-                    else {
-                        System.out.println("error?????");
-                        System.out.println(toDelete.getModelIdentifier().getLanguageTag());
-                        // model is not downloaded, we can't delete
-                        call.reject("Cannot delete " + toDelete.getModelIdentifier().getLanguageTag() + " model, it is not downloaded.");
-                    }
-                })
-                .addOnFailureListener(result -> {
-                    // various failures caught. misspelled tag, for one
-                    call.reject(result.getMessage());
-                });
-            }
+            job.start(1, "Processing singular model " + langTag + "...");
+            deleteSingleModel(langTag, job);
         }
         else if (call.getData().has("models")) {
-            // Keep call alive so we can resolve() multiple times
-            call.setKeepAlive(true);
-
             JSArray langTags = call.getArray("models");
 
-            res.put("ok", true);
-            res.put("done", false);
-            res.put("msg", "Processing array of models...");
+            job.start(langTags.length(), "Processing array of models...");
 
             // iterate through language tag arrays, deleting each model
             for (int i = 0; i < langTags.length(); i++) {
-                String langTag = "";
-                Boolean isLast = (i == langTags.length() - 1);
-
-                try {langTag = (String) langTags.get(i);}
-                catch (JSONException error) {call.reject(error.toString());}
-
-                // create the model class
-                DigitalInkRecognitionModel toDelete = createRemoteModel(langTag, call);
+                deleteSingleModel(langTags.optString(i, ""), job);
+            }
+        }
+        else if (call.getData().has("all")) {
+            remoteModelManager.getDownloadedModels(DigitalInkRecognitionModel.class)
+            .addOnSuccessListener(result -> {
+                if (result.size() > 0) {
+                    job.start(result.size(), "Deleting models...");
 
-                if (toDelete != null) {
-                    // check if the model is downloaded. Also checks if language tag provided
-                    // is a legit model, or is misspelled, etc.
-                    remoteModelManager.isModelDownloaded(toDelete)
-                    .addOnSuccessListener(result -> {
-                        if (result) {
-                            // model is in fact downloaded, we should delete it
-                            remoteModelManager.deleteDownloadedModel(toDelete)
-                            .addOnCompleteListener(deleted -> {
-                                System.out.println(deleted.getResult());
-                                res.put("ok", true);
-                                res.put("done", isLast);
-                                res.put("msg", toDelete.getModelName() + " model deleted successfully.");
-                                call.resolve(res);
-
-                                call.setKeepAlive(!isLast);
-                            });
-                        }
-                        else {
-                            // model is not downloaded, we can't delete
-                            call.reject("Cannot delete " + toDelete.getModelName() + " model, it is not downloaded");
-                            call.setKeepAlive(!isLast);
-                        }
-                    })
-                    .addOnFailureListener(result -> {
-                        // various failures caught. misspelled tag, for one
-                        call.reject(result.getMessage());
-                        call.setKeepAlive(!isLast);
-                    });
+                    for (DigitalInkRecognitionModel toDelete : result) {
+                        deleteDownloadedModel(toDelete, job);
+                    }
                 }
                 else {
-                    call.reject(langTag + " is not a valid model.");
-
-                    call.setKeepAlive(!isLast);
+                    job.finish(false, "No models to delete.");
                 }
-            }
+            })
+            .addOnFailureListener(error -> {
+                // send error, ends the job
+                job.finish(false, error.toString());
+            });
         }
-        else if (call.getData().has("all")) {
-            // Keep call alive so we can resolve() multiple times
-            call.setKeepAlive(true);
+        else {
+            job.finish(false, "No params given, no models deleted.");
+        }
+    }
 
-            remoteModelManager.getDownloadedModels(DigitalInkRecognitionModel.class)
-            .addOnSuccessListener(result -> {
-               // downloaded models return as a Set
-               Set allModels = result;
+    // builds the model for a language tag, or null if the tag isn't a valid model
+    public DigitalInkRecognitionModel buildModel(String langTag) {
+        try {
+            DigitalInkRecognitionModelIdentifier identifier =
+                    DigitalInkRecognitionModelIdentifier.fromLanguageTag(langTag);
 
-                if (allModels.size() > 0) {
-                    // create iterator to feed models in to be deleted
-                    Iterator allModelsIter = allModels.iterator();
+            return identifier == null ? null : DigitalInkRecognitionModel.builder(identifier).build();
+        }
+        catch (MlKitException error) {
+            return null;
+        }
+    }
 
-                    Integer counter = 0;
+    // downloads a single model as one unit of the job, skipping it if it's already downloaded
+    public void downloadModel(String langTag, ModelJob job) {
+        DigitalInkRecognitionModel newModel = buildModel(langTag);
 
-                    while (allModelsIter.hasNext()) {
-                        counter++;
-                        Integer finalCounter = counter;
+        if (newModel == null) {
+            job.complete(false, langTag + " is not a valid model.");
+            return;
+        }
 
-                        // defined model to delete
-                        DigitalInkRecognitionModel toDelete = (DigitalInkRecognitionModel) allModelsIter.next();
+        // check if model is already downloaded
+        remoteModelManager.isModelDownloaded(newModel)
+                .addOnSuccessListener(downloaded -> {
+                    if (downloaded) {
+                        job.complete(true, langTag + " model is already downloaded.");
+                        return;
+                    }
 
-                        remoteModelManager.deleteDownloadedModel(toDelete)
-                        .addOnCompleteListener(delResult -> {
-                            // send the response
-                            res.put("ok", true);
-                            res.put("done", finalCounter == allModels.size());
-                            res.put("msg", toDelete.getModelIdentifier().getLanguageTag() + " model deleted successfully.");
-                            call.resolve(res);
+                    // if the model is not already downloaded, download the new model
+                    remoteModelManager
+                            .download(newModel, new DownloadConditions.Builder().build())
+                            .addOnSuccessListener(response -> {
+                                // counts as a use, so the budget check doesn't evict what was just asked for
+                                lifecycleManager.recordDownload(newModel.getModelIdentifier().getLanguageTag());
+                                job.complete(true, langTag + " model was downloaded successfully.");
+
+                                lifecycleManager.enforceBudget();
+                            })
+                            .addOnFailureListener(error -> job.complete(false, error.toString()));
+                })
+                .addOnFailureListener(error -> job.complete(false, error.toString()));
+    }
 
-                            if (finalCounter == allModels.size()) {
-                                // last iteration, kill the call
-                                call.setKeepAlive(false);
-                            }
-                        })
-                        .addOnFailureListener(error -> {
-                            // send error to client
-                            call.reject(error.getMessage());
+    // deletes a single model as one unit of the job, failing the unit if it isn't downloaded
+    public void deleteSingleModel(String langTag, ModelJob job) {
+        DigitalInkRecognitionModel toDelete = buildModel(langTag);
 
-                            if (finalCounter == allModels.size()) {
-                                call.setKeepAlive(false);
-                            }
-                        });
+        if (toDelete == null) {
+            job.complete(false, langTag + " is not a valid model.");
+            return;
+        }
+
+        remoteModelManager.isModelDownloaded(toDelete)
+                .addOnSuccessListener(downloaded -> {
+                    if (downloaded) {
+                        deleteDownloadedModel(toDelete, job);
                     }
+                    else {
+                        // model is not downloaded, we can't delete
+                        job.complete(false, "Cannot delete " + langTag + " model, it is not downloaded.");
+                    }
+                })
+                .addOnFailureListener(error -> job.complete(false, error.toString()));
+    }
 
-                    res.put("ok", true);
-                    res.put("done", false);
-                    res.put("msg", "Deleting models...");
-                    call.resolve(res);
-                }
-                else {
-                    call.reject("No models to delete.");
+    public void deleteDownloadedModel(DigitalInkRecognitionModel toDelete, ModelJob job) {
+        String langTag = toDelete.getModelIdentifier().getLanguageTag();
 
-                    // kill the call
-                    call.setKeepAlive(false);
-                }
+        // the recognizer holds the model's files open, it has to go first
+        if (!recognizerCache.close(langTag)) {
+            job.complete(false, "Cannot delete " + langTag + " model, it is being used for recognition.");
+            return;
+        }
 
-           })
-            .addOnFailureListener(error -> {
-               // send error
-               call.reject(error.toString());
+        remoteModelManager.deleteDownloadedModel(toDelete)
+                .addOnSuccessListener(deleted -> {
+                    lifecycleManager.forget(langTag);
 
-               // kill the call
-               call.setKeepAlive(false);
-           });
+                    job.complete(true, langTag + " model deleted successfully.");
+                })
+                .addOnFailureListener(error -> job.complete(false, error.toString()));
+    }
+
+    @PluginMethod
+    public void cancelRecognition(PluginCall call) {
+        JSObject res = new JSObject();
+
+        if (call.getData().has("requestId")) {
+            String requestId = call.getString("requestId");
+            boolean cancelled = recognitionQueue.cancel(requestId, "Recognition request " + requestId + " was cancelled.");
+
+            res.put("ok", cancelled);
+            res.put("msg", cancelled
+                    ? "Recognition request " + requestId + " cancelled."
+                    : "No pending recognition request " + requestId + ".");
+            call.resolve(res);
         }
         else {
-            call.reject("No params given, no models deleted.");
+            call.reject("No requestId given, nothing cancelled.");
+        }
+    }
+
+    @PluginMethod
+    public void configureRecognitionQueue(PluginCall call) {
+        /*
+         * Response structure:
+         *
+         * {
+         *   ok: boolean,
+         *   msg: string,
+         *   interactiveConcurrency: number,
+         *   backgroundConcurrency: number
+         * }
+         *
+         * */
+        JSObject res = new JSObject();
+
+        recognitionQueue.setLimits(
+                call.getInt("interactiveConcurrency", recognitionQueue.getInteractiveLimit()),
+                call.getInt("backgroundConcurrency", recognitionQueue.getBackgroundLimit())
+        );
+
+        res.put("ok", true);
+        res.put("msg", "Recognition queue configured.");
+        res.put("interactiveConcurrency", recognitionQueue.getInteractiveLimit());
+        res.put("backgroundConcurrency", recognitionQueue.getBackgroundLimit());
+        call.resolve(res);
+    }
+
+    @PluginMethod
+    public void configureResourceRelease(PluginCall call) {
+        /*
+         * Response structure:
+         *
+         * {
+         *   ok: boolean,
+         *   msg: string,
+         *   idleTimeout: number,
+         *   backgroundTimeout: number,
+         *   spillStrokes: boolean
+         * }
+         *
+         * */
+        JSObject res = new JSObject();
+
+        long newIdleTimeout = call.getLong("idleTimeout", idleTimeout);
+        long newBackgroundTimeout = call.getLong("backgroundTimeout", backgroundTimeout);
+
+        if (newIdleTimeout < 0 || newBackgroundTimeout < 0) {
+            call.reject("Timeouts must be 0 or greater.");
+            return;
         }
+
+        idleTimeout = newIdleTimeout;
+        backgroundTimeout = newBackgroundTimeout;
+        spillStrokes = call.getBoolean("spillStrokes", spillStrokes);
+
+        res.put("ok", true);
+        res.put("msg", "Resource release configured.");
+        res.put("idleTimeout", idleTimeout);
+        res.put("backgroundTimeout", backgroundTimeout);
+        res.put("spillStrokes", spillStrokes);
+        call.resolve(res);
+    }
+
+    @PluginMethod
+    public void setModelLifecyclePolicy(PluginCall call) throws JSONException {
+        // instantiate response object
+        /*
+         * Response structure:
+         *
+         * {
+         *   ok: boolean,
+         *   msg: string,
+         *   policy: { managed: boolean, maxModels: number, pinned: string[] }
+         * }
+         *
+         * */
+        JSObject res = new JSObject();
+
+        boolean managed = call.getBoolean("managed", false);
+        int maxModels = call.getInt("maxModels", 0);
+
+        if (maxModels < 0) {
+            call.reject("maxModels must be 0 (no limit) or greater.");
+            return;
+        }
+
+        Set<String> pinned = new HashSet<>();
+        JSArray pinnedTags = call.getArray("pinned", new JSArray());
+
+        for (int i = 0; i < pinnedTags.length(); i++) {
+            pinned.add(pinnedTags.getString(i));
+        }
+
+        lifecycleManager.setPolicy(managed, maxModels, pinned);
+
+        res.put("ok", true);
+        res.put("msg", managed ? "Model lifecycle management enabled." : "Model lifecycle management disabled.");
+        res.put("policy", lifecycleManager.getPolicy());
+        call.resolve(res);
+
+        // trim right away in case the new budget is already exceeded
+        lifecycleManager.enforceBudget();
     }
 
     @PluginMethod
@@ -685,7 +892,9 @@ public class DigitalInkPlugin extends Plugin {
          * {
          *   ok: boolean,
          *   msg: string,
-         *   models: string[]
+         *   models: string[],
+         *   usage: { model: string, lastUsed: number, useCount: number, pinned: boolean }[],
+         *   policy: { managed: boolean, maxModels: number, pinned: string[] }
          * }
          *
          * */
@@ -693,21 +902,22 @@ public class DigitalInkPlugin extends Plugin {
 
         remoteModelManager.getDownloadedModels(DigitalInkRecognitionModel.class)
         .addOnSuccessListener(result -> {
-            // downloaded models return as a Set
-            Set allModels = result;
-
-            if (allModels.size() > 0) {
-                res.put("ok", true);
-                res.put("msg", "All models successfully deleted.");
-                res.put("models", allModels);
-                call.resolve(res);
-            }
-            else {
-                res.put("ok", true);
-                res.put("msg", "No models are downloaded.");
-                call.resolve(res);
+            JSArray langTags = new JSArray();
+            JSArray usage = new JSArray();
+
+            for (DigitalInkRecognitionModel downloaded : result) {
+                String langTag = downloaded.getModelIdentifier().getLanguageTag();
+                langTags.put(langTag);
+                usage.put(lifecycleManager.usageOf(langTag));
             }
 
+            res.put("ok", true);
+            res.put("msg", result.size() > 0 ? "Downloaded models retrieved." : "No models are downloaded.");
+            res.put("models", langTags);
+            res.put("usage", usage);
+            res.put("policy", lifecycleManager.getPolicy());
+            call.resolve(res);
+
         })
         .addOnFailureListener(error -> {
             // send error
@@ -0,0 +1,202 @@
+package com.spoken.app.digitalink;
+
+import com.google.mlkit.vision.digitalink.recognition.Ink;
+
+import java.util.List;
+
+/**
+ * Lightweight classifier that looks at the geometry of a single stroke and tells whether it's an
+ * editing gesture (tap, strike-through, scratch-out or check mark) rather than handwriting.
+ *
+ * Each gesture is scored between 0 and 1; the best scoring one is returned so the caller can
+ * decide how confident it needs to be before skipping text recognition. Sizes are judged against
+ * the writing area, so a short "-" or a written "." doesn't pass for a strike-through or a tap.
+ */
+public class GestureClassifier {
+    public static final String TAP = "tap";
+    public static final String STRIKE_THROUGH = "strike-through";
+    public static final String SCRATCH_OUT = "scratch-out";
+    public static final String CHECK_MARK = "check-mark";
+
+    // a tap fits inside this fraction of the writing area's diagonal
+    private static final float TAP_FRACTION = 0.02f;
+
+    // a strike-through spans at least this fraction of the writing area's width, fully so at the second
+    private static final float STRIKE_MIN_FRACTION = 0.1f;
+    private static final float STRIKE_FULL_FRACTION = 0.25f;
+
+    // fallbacks when no writing area is known, in the same units as the stroke
+    private static final float TAP_SIZE = 10f;
+    private static final float STRIKE_MIN_LENGTH = 100f;
+    private static final float STRIKE_FULL_LENGTH = 250f;
+
+    public static class Gesture {
+        public final String type;
+        public final float confidence;
+
+        Gesture(String type, float confidence) {
+            this.type = type;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * Classifies the ink, or returns null when it isn't a single stroke.
+     * writingWidth/writingHeight may be 0 if the writing area is unknown.
+     */
+    public Gesture classify(Ink ink, float writingWidth, float writingHeight) {
+        List<Ink.Stroke> strokes = ink.getStrokes();
+
+        if (strokes.size() != 1) {
+            return null;
+        }
+
+        List<Ink.Point> points = strokes.get(0).getPoints();
+        float[] xs = new float[points.size()];
+        float[] ys = new float[points.size()];
+
+        for (int i = 0; i < points.size(); i++) {
+            xs[i] = points.get(i).getX();
+            ys[i] = points.get(i).getY();
+        }
+
+        return classify(xs, ys, writingWidth, writingHeight);
+    }
+
+    /**
+     * Classifies a single stroke given as point coordinates (screen coordinates, y grows downwards),
+     * or returns null when it has no points.
+     */
+    public Gesture classify(float[] xs, float[] ys, float writingWidth, float writingHeight) {
+        int count = xs.length;
+
+        if (count == 0) {
+            return null;
+        }
+
+        float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        float pathLength = 0;
+        int xReversals = 0;
+        float lastDx = 0;
+
+        // lowest point on screen (largest y), where a check mark turns
+        int turnIndex = 0;
+
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+
+            if (ys[i] > ys[turnIndex]) {
+                turnIndex = i;
+            }
+
+            if (i > 0) {
+                float dx = xs[i] - xs[i - 1];
+                float dy = ys[i] - ys[i - 1];
+                pathLength += (float) Math.hypot(dx, dy);
+
+                if (dx != 0) {
+                    if (lastDx != 0 && Math.signum(dx) != Math.signum(lastDx)) {
+                        xReversals++;
+                    }
+                    lastDx = dx;
+                }
+            }
+        }
+
+        float width = maxX - minX;
+        float height = maxY - minY;
+        float diagonal = (float) Math.hypot(width, height);
+
+        boolean knownArea = writingWidth > 0 && writingHeight > 0;
+        float tapSize = knownArea
+                ? (float) Math.hypot(writingWidth, writingHeight) * TAP_FRACTION
+                : TAP_SIZE;
+
+        if (diagonal <= tapSize) {
+            // only a (nearly) motionless touch is sure to be a tap, a written dot has some extent
+            return new Gesture(TAP, clamp(1f - diagonal / tapSize));
+        }
+
+        float strikeMin = knownArea ? writingWidth * STRIKE_MIN_FRACTION : STRIKE_MIN_LENGTH;
+        float strikeFull = knownArea ? writingWidth * STRIKE_FULL_FRACTION : STRIKE_FULL_LENGTH;
+        float chord = distance(xs, ys, 0, count - 1);
+
+        Gesture best = new Gesture(STRIKE_THROUGH,
+                strikeThroughScore(width, height, chord, pathLength, strikeMin, strikeFull));
+        best = better(best, new Gesture(SCRATCH_OUT, scratchOutScore(width, height, pathLength, xReversals)));
+        best = better(best, new Gesture(CHECK_MARK, checkMarkScore(xs, ys, turnIndex, height, pathLength)));
+
+        return best;
+    }
+
+    // long compared to the writing area, flat and straight
+    private float strikeThroughScore(float width, float height, float chord, float pathLength,
+                                     float strikeMin, float strikeFull) {
+        if (width == 0 || chord == 0) {
+            return 0;
+        }
+
+        float length = clamp((width - strikeMin) / (strikeFull - strikeMin));
+        float flatness = clamp(1f - (height / width) / 0.25f);
+        float straightness = clamp(1f - (pathLength / chord - 1f) / 0.3f);
+
+        return length * flatness * straightness;
+    }
+
+    // back-and-forth zigzag covering roughly the same area several times
+    private float scratchOutScore(float width, float height, float pathLength, int xReversals) {
+        if (width == 0) {
+            return 0;
+        }
+
+        float reversals = clamp((xReversals - 2) / 4f);
+        float coverage = clamp((pathLength / width - 2f) / 2f);
+        float flatness = clamp(1.5f - height / width);
+
+        return reversals * coverage * flatness;
+    }
+
+    // short stroke down to a turning point, then a longer stroke up and to the right
+    private float checkMarkScore(float[] xs, float[] ys, int turnIndex, float height, float pathLength) {
+        int last = xs.length - 1;
+
+        if (turnIndex == 0 || turnIndex == last || height == 0) {
+            return 0;
+        }
+
+        // both legs move to the right, the first goes down and the second goes up (screen coordinates)
+        if (xs[turnIndex] <= xs[0] || xs[last] <= xs[turnIndex]
+                || ys[turnIndex] <= ys[0] || ys[last] >= ys[turnIndex]) {
+            return 0;
+        }
+
+        float down = distance(xs, ys, 0, turnIndex);
+        float up = distance(xs, ys, turnIndex, last);
+
+        // the second leg is usually 1.5 to 3 times the first
+        float proportion = clamp(1f - Math.abs(up / down - 2f) / 2f);
+
+        // the second leg ends well above where the first one started
+        float rise = clamp((ys[0] - ys[last]) / height + 0.5f);
+
+        float straightness = clamp(1f - ((pathLength / (down + up)) - 1f) / 0.3f);
+
+        return proportion * rise * straightness;
+    }
+
+    private static Gesture better(Gesture a, Gesture b) {
+        return b.confidence > a.confidence ? b : a;
+    }
+
+    private static float distance(float[] xs, float[] ys, int from, int to) {
+        return (float) Math.hypot(xs[to] - xs[from], ys[to] - ys[from]);
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0f, Math.min(1f, value));
+    }
+}
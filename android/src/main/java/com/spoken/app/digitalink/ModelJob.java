@@ -0,0 +1,96 @@
+package com.spoken.app.digitalink;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+/**
+ * A download/delete operation over one or more models that reports back through a kept-alive
+ * callback call.
+ *
+ * Every event is a freshly built object. Completions are counted and sent under one lock, so exactly
+ * one of them carries done = true, it's always the last event sent, and the call is released with
+ * the bridge right after it, no matter which threads the ML Kit tasks finish on.
+ *
+ * Event structure:
+ *
+ * {
+ *   ok: boolean,
+ *   done: boolean,
+ *   msg: string,
+ * }
+ */
+public class ModelJob {
+    private final PluginCall call;
+    private final Bridge bridge;
+
+    // number of units (models) that have not completed yet, -1 until start() is called
+    private int remaining = -1;
+
+    private boolean released = false;
+
+    public ModelJob(PluginCall call, Bridge bridge) {
+        this.call = call;
+        this.bridge = bridge;
+
+        // Keep call alive so we can resolve() multiple times
+        call.setKeepAlive(true);
+    }
+
+    /**
+     * Sets how many units this job waits for and sends a progress event.
+     * A job with nothing to do fails immediately instead.
+     */
+    public synchronized void start(int total, String msg) {
+        if (total <= 0) {
+            finish(false, "No models given.");
+            return;
+        }
+
+        remaining = total;
+        send(true, false, msg);
+    }
+
+    /**
+     * Reports the outcome of one unit. The last unit to complete sends done = true and releases the call.
+     */
+    public synchronized void complete(boolean ok, String msg) {
+        if (remaining <= 0) {
+            // more completions than units, the job is already over
+            return;
+        }
+
+        remaining--;
+        send(ok, remaining == 0, msg);
+    }
+
+    /**
+     * Ends the job with a single final event, regardless of any units still pending.
+     */
+    public synchronized void finish(boolean ok, String msg) {
+        remaining = 0;
+        send(ok, true, msg);
+    }
+
+    private void send(boolean ok, boolean done, String msg) {
+        if (released) {
+            return;
+        }
+
+        JSObject event = new JSObject();
+        event.put("ok", ok);
+        event.put("done", done);
+        event.put("msg", msg);
+
+        if (ok) {
+            call.resolve(event);
+        } else {
+            call.reject(msg, null, null, event);
+        }
+
+        if (done) {
+            released = true;
+            call.release(bridge);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.spoken.app.digitalink;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import com.google.mlkit.common.model.RemoteModelManager;
+import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognitionModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks when each downloaded model was last used for recognition and, when managed mode is on,
+ * keeps the number of downloaded models within a budget by deleting the least recently used
+ * models that are not pinned. The plugin's default model is always treated as pinned, since the
+ * plugin downloads it again on every launch.
+ *
+ * Usage data and the policy are kept in SharedPreferences so they survive app restarts.
+ */
+public class ModelLifecycleManager {
+    private static final String PREFS_NAME = "DigitalInkModelLifecycle";
+
+    private static final String KEY_MANAGED = "managed";
+    private static final String KEY_MAX_MODELS = "maxModels";
+    private static final String KEY_PINNED = "pinned";
+    private static final String KEY_LAST_USED_PREFIX = "lastUsed:";
+    private static final String KEY_USE_COUNT_PREFIX = "useCount:";
+    private static final String KEY_DOWNLOADED_AT_PREFIX = "downloadedAt:";
+
+    private final SharedPreferences prefs;
+    private final RemoteModelManager remoteModelManager;
+
+    // recognizers of evicted models are closed first, models with recognitions in flight are skipped
+    private final RecognizerCache recognizerCache;
+
+    // language tag of the plugin's default model, never evicted (may be null)
+    private final String defaultLangTag;
+
+    // set from the start of an eviction pass until all of its deletes have completed,
+    // so an overlapping pass can't pick the same models again
+    private boolean evicting = false;
+
+    // set when a budget check arrives during a pass, another pass runs once the current one ends
+    private boolean rerun = false;
+
+    public ModelLifecycleManager(Context context, RemoteModelManager remoteModelManager,
+                                 RecognizerCache recognizerCache, String defaultLangTag) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.remoteModelManager = remoteModelManager;
+        this.recognizerCache = recognizerCache;
+        this.defaultLangTag = defaultLangTag;
+    }
+
+    public synchronized void setPolicy(boolean managed, int maxModels, Set<String> pinned) {
+        prefs.edit()
+                .putBoolean(KEY_MANAGED, managed)
+                .putInt(KEY_MAX_MODELS, maxModels)
+                .putStringSet(KEY_PINNED, new HashSet<>(pinned))
+                .apply();
+    }
+
+    public synchronized boolean isManaged() {
+        return prefs.getBoolean(KEY_MANAGED, false);
+    }
+
+    // 0 means no limit on the number of downloaded models
+    public synchronized int getMaxModels() {
+        return prefs.getInt(KEY_MAX_MODELS, 0);
+    }
+
+    public synchronized Set<String> getPinned() {
+        return new HashSet<>(prefs.getStringSet(KEY_PINNED, Collections.emptySet()));
+    }
+
+    // pinned by the policy, or the default model
+    public synchronized boolean isPinned(String langTag) {
+        return langTag.equals(defaultLangTag) || getPinned().contains(langTag);
+    }
+
+    public synchronized JSObject getPolicy() {
+        JSObject policy = new JSObject();
+        policy.put("managed", isManaged());
+        policy.put("maxModels", getMaxModels());
+        policy.put("pinned", new JSArray(getPinned()));
+
+        return policy;
+    }
+
+    public synchronized long getLastUsed(String langTag) {
+        return prefs.getLong(KEY_LAST_USED_PREFIX + langTag, 0);
+    }
+
+    public synchronized int getUseCount(String langTag) {
+        return prefs.getInt(KEY_USE_COUNT_PREFIX + langTag, 0);
+    }
+
+    public synchronized long getDownloadedAt(String langTag) {
+        return prefs.getLong(KEY_DOWNLOADED_AT_PREFIX + langTag, 0);
+    }
+
+    // when the model was last used or downloaded, whichever is later
+    public synchronized long getLastActive(String langTag) {
+        return Math.max(getLastUsed(langTag), getDownloadedAt(langTag));
+    }
+
+    /**
+     * Records that the model was just downloaded, so eviction doesn't take it for a never used model.
+     */
+    public synchronized void recordDownload(String langTag) {
+        prefs.edit()
+                .putLong(KEY_DOWNLOADED_AT_PREFIX + langTag, System.currentTimeMillis())
+                .apply();
+    }
+
+    /**
+     * Records a recognition made with the given model. This is on the recognition path, so it only
+     * writes the usage; the budget is enforced after downloads and policy changes.
+     */
+    public synchronized void recordUse(String langTag) {
+        prefs.edit()
+                .putLong(KEY_LAST_USED_PREFIX + langTag, System.currentTimeMillis())
+                .putInt(KEY_USE_COUNT_PREFIX + langTag, getUseCount(langTag) + 1)
+                .apply();
+    }
+
+    /**
+     * Drops the usage data of a model that has been deleted.
+     */
+    public synchronized void forget(String langTag) {
+        prefs.edit()
+                .remove(KEY_LAST_USED_PREFIX + langTag)
+                .remove(KEY_USE_COUNT_PREFIX + langTag)
+                .remove(KEY_DOWNLOADED_AT_PREFIX + langTag)
+                .apply();
+    }
+
+    /**
+     * Builds the usage statistics reported by getDownloadedModels().
+     *
+     * {
+     *   model: string,
+     *   lastUsed: number (epoch ms, 0 if never used),
+     *   useCount: number,
+     *   pinned: boolean
+     * }
+     */
+    public synchronized JSObject usageOf(String langTag) {
+        JSObject usage = new JSObject();
+        usage.put("model", langTag);
+        usage.put("lastUsed", getLastUsed(langTag));
+        usage.put("useCount", getUseCount(langTag));
+        usage.put("pinned", isPinned(langTag));
+
+        return usage;
+    }
+
+    /**
+     * Deletes least recently used, unpinned models until the downloaded model count fits the budget.
+     * Does nothing unless managed mode is on and a budget is set. Models that are being used for
+     * recognition are skipped. Runs on ML Kit's task callbacks, so the caller is never blocked; a
+     * call made while a pass is running starts another pass once it's over.
+     */
+    public void enforceBudget() {
+        int maxModels;
+
+        synchronized (this) {
+            maxModels = getMaxModels();
+
+            if (!isManaged() || maxModels <= 0) {
+                return;
+            }
+
+            if (evicting) {
+                // models may have been downloaded after this pass listed them, check again afterwards
+                rerun = true;
+                return;
+            }
+            evicting = true;
+            rerun = false;
+        }
+
+        remoteModelManager.getDownloadedModels(DigitalInkRecognitionModel.class)
+                .addOnSuccessListener(result -> {
+                    int excess = result.size() - maxModels;
+
+                    Map<String, DigitalInkRecognitionModel> byTag = new HashMap<>();
+                    for (DigitalInkRecognitionModel downloaded : result) {
+                        byTag.put(downloaded.getModelIdentifier().getLanguageTag(), downloaded);
+                    }
+
+                    Map<String, Long> lastActive = new HashMap<>();
+                    for (String langTag : byTag.keySet()) {
+                        lastActive.put(langTag, getLastActive(langTag));
+                    }
+
+                    List<String> candidates = evictionOrder(lastActive, getPinned(), defaultLangTag);
+                    List<Task<Void>> deletes = new ArrayList<>();
+
+                    for (int i = 0; deletes.size() < excess && i < candidates.size(); i++) {
+                        String langTag = candidates.get(i);
+                        DigitalInkRecognitionModel toEvict = byTag.get(langTag);
+
+                        if (!recognizerCache.close(langTag)) {
+                            // busy, the next least recently used model goes instead
+                            continue;
+                        }
+
+                        deletes.add(remoteModelManager.deleteDownloadedModel(toEvict)
+                                .addOnSuccessListener(deleted -> forget(langTag)));
+                    }
+
+                    // the pass is over once every delete has finished, successfully or not
+                    Tasks.whenAllComplete(deletes).addOnCompleteListener(done -> finishEviction());
+                })
+                .addOnFailureListener(error -> finishEviction());
+    }
+
+    private void finishEviction() {
+        boolean again;
+
+        synchronized (this) {
+            evicting = false;
+            again = rerun;
+            rerun = false;
+        }
+
+        if (again) {
+            enforceBudget();
+        }
+    }
+
+    /**
+     * Orders the models that may be evicted, first to go first: pinned models and the default model
+     * are left out, the rest go by when they were last used or downloaded (0 if never), oldest first.
+     */
+    static List<String> evictionOrder(Map<String, Long> lastActive, Set<String> pinned, String defaultLangTag) {
+        List<String> candidates = new ArrayList<>();
+
+        for (String langTag : lastActive.keySet()) {
+            if (!langTag.equals(defaultLangTag) && !pinned.contains(langTag)) {
+                candidates.add(langTag);
+            }
+        }
+
+        Collections.sort(candidates, (a, b) -> Long.compare(lastActive.get(a), lastActive.get(b)));
+
+        return candidates;
+    }
+}
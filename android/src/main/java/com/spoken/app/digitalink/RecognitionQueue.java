@@ -0,0 +1,253 @@
+package com.spoken.app.digitalink;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queue for recognition requests with two priorities.
+ *
+ * Interactive requests always start before background ones, and queued background requests
+ * don't start while interactive work is queued or running. Each priority has its own concurrency
+ * limit. Requests can carry a caller-supplied ID to cancel them; a cancelled request is rejected
+ * right away and its call is never resolved afterwards, even if ML Kit is still working on it.
+ */
+public class RecognitionQueue {
+    public static final String INTERACTIVE = "interactive";
+    public static final String BACKGROUND = "background";
+
+    /**
+     * Work that performs the recognition and settles the request through resolve()/reject().
+     */
+    public interface Work {
+        void run(Request request);
+    }
+
+    public class Request {
+        public final PluginCall call;
+        public final String requestId;
+        public final boolean interactive;
+        private final Work work;
+
+        // resolved, rejected or cancelled: the call must not be answered again
+        private boolean settled = false;
+
+        Request(PluginCall call, String requestId, boolean interactive, Work work) {
+            this.call = call;
+            this.requestId = requestId;
+            this.interactive = interactive;
+            this.work = work;
+        }
+
+        public void resolve(JSObject res) {
+            if (settle()) {
+                call.resolve(res);
+            }
+            finished(this);
+        }
+
+        public void reject(String msg) {
+            if (settle()) {
+                call.reject(msg);
+            }
+            finished(this);
+        }
+
+        // true once the request has been answered or cancelled; running work can stop early
+        public boolean isSettled() {
+            synchronized (RecognitionQueue.this) {
+                return settled;
+            }
+        }
+
+        private boolean settle() {
+            synchronized (RecognitionQueue.this) {
+                if (settled) {
+                    return false;
+                }
+                settled = true;
+                return true;
+            }
+        }
+    }
+
+    private final Deque<Request> interactiveQueue = new ArrayDeque<>();
+    private final Deque<Request> backgroundQueue = new ArrayDeque<>();
+
+    // queued and running requests that have a request ID, for cancellation
+    private final Map<String, Request> byId = new HashMap<>();
+
+    // requests holding a concurrency slot
+    private final Set<Request> runningRequests = new HashSet<>();
+
+    private int interactiveLimit = 2;
+    private int backgroundLimit = 1;
+
+    private int interactiveRunning = 0;
+    private int backgroundRunning = 0;
+
+    // set while some thread is inside drain(); work that settles synchronously calls back into
+    // drain() through finished(), and that nested call leaves the starting to the outer loop
+    private boolean draining = false;
+
+    public void setLimits(int interactiveLimit, int backgroundLimit) {
+        synchronized (this) {
+            this.interactiveLimit = Math.max(1, interactiveLimit);
+            this.backgroundLimit = Math.max(1, backgroundLimit);
+        }
+
+        // raised limits may let queued requests start
+        drain();
+    }
+
+    public synchronized int getInteractiveLimit() {
+        return interactiveLimit;
+    }
+
+    public synchronized int getBackgroundLimit() {
+        return backgroundLimit;
+    }
+
+    /**
+     * Queues a request. A request with the same ID as a pending one replaces it, and the
+     * pending one is cancelled.
+     */
+    public void submit(PluginCall call, String requestId, String priority, Work work) {
+        Request request = new Request(call, requestId, !BACKGROUND.equals(priority), work);
+
+        if (requestId != null) {
+            cancel(requestId, "Superseded by a newer request with the same requestId.");
+        }
+
+        synchronized (this) {
+            if (requestId != null) {
+                byId.put(requestId, request);
+            }
+
+            if (request.interactive) {
+                interactiveQueue.add(request);
+            } else {
+                backgroundQueue.add(request);
+            }
+        }
+
+        drain();
+    }
+
+    /**
+     * Cancels a queued or running request. Returns false if no pending request has that ID.
+     */
+    public boolean cancel(String requestId, String msg) {
+        Request request;
+
+        synchronized (this) {
+            request = byId.remove(requestId);
+
+            if (request == null) {
+                return false;
+            }
+
+            // queued requests just leave the queue, running ones keep their slot until ML Kit is done
+            interactiveQueue.remove(request);
+            backgroundQueue.remove(request);
+        }
+
+        if (request.settle()) {
+            request.call.reject(msg);
+        }
+
+        return true;
+    }
+
+    /**
+     * Cancels every queued and running request, with or without an ID.
+     */
+    public void cancelAll(String msg) {
+        List<Request> pending = new ArrayList<>();
+
+        synchronized (this) {
+            pending.addAll(interactiveQueue);
+            pending.addAll(backgroundQueue);
+            pending.addAll(runningRequests);
+
+            interactiveQueue.clear();
+            backgroundQueue.clear();
+            byId.clear();
+        }
+
+        for (Request request : pending) {
+            if (request.settle()) {
+                request.call.reject(msg);
+            }
+        }
+    }
+
+    private void finished(Request request) {
+        synchronized (this) {
+            if (!runningRequests.remove(request)) {
+                return;
+            }
+
+            if (request.interactive) {
+                interactiveRunning--;
+            } else {
+                backgroundRunning--;
+            }
+
+            if (request.requestId != null && byId.get(request.requestId) == request) {
+                byId.remove(request.requestId);
+            }
+        }
+
+        drain();
+    }
+
+    // starts as many queued requests as the limits allow, interactive first. Iterative: only one
+    // thread drains at a time, and it keeps going until nothing more can start
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+
+        while (true) {
+            Request next;
+
+            synchronized (this) {
+                if (!interactiveQueue.isEmpty() && interactiveRunning < interactiveLimit) {
+                    next = interactiveQueue.poll();
+                    interactiveRunning++;
+                } else if (interactiveQueue.isEmpty() && interactiveRunning == 0
+                        && !backgroundQueue.isEmpty() && backgroundRunning < backgroundLimit) {
+                    // background work waits until no interactive work is queued or running
+                    next = backgroundQueue.poll();
+                    backgroundRunning++;
+                } else {
+                    // checked and cleared under the same lock, so nothing queued meanwhile is missed
+                    draining = false;
+                    return;
+                }
+
+                runningRequests.add(next);
+            }
+
+            try {
+                next.work.run(next);
+            }
+            catch (RuntimeException error) {
+                // don't let a failing request hold its slot forever
+                next.reject(error.toString());
+            }
+        }
+    }
+}
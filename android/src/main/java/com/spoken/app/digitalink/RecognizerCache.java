@@ -0,0 +1,114 @@
+package com.spoken.app.digitalink;
+
+import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognition;
+import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognitionModel;
+import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognizer;
+import com.google.mlkit.vision.digitalink.recognition.DigitalInkRecognizerOptions;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Recognizers created so far, keyed by language tag, so each model only gets one client.
+ *
+ * Callers acquire() a recognizer before recognizing and release() it once ML Kit is done. Only
+ * recognizers with no recognition in flight are closed, which frees their native model memory;
+ * a closed recognizer is recreated the next time its model is acquired.
+ */
+public class RecognizerCache {
+    private static class Entry {
+        final DigitalInkRecognizer recognizer;
+        int inFlight = 0;
+        long lastUsed = System.currentTimeMillis();
+
+        Entry(DigitalInkRecognizer recognizer) {
+            this.recognizer = recognizer;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public synchronized DigitalInkRecognizer acquire(DigitalInkRecognitionModel model) {
+        String langTag = model.getModelIdentifier().getLanguageTag();
+        Entry entry = entries.get(langTag);
+
+        if (entry == null) {
+            entry = new Entry(DigitalInkRecognition.getClient(
+                    DigitalInkRecognizerOptions.builder(model).build()
+            ));
+            entries.put(langTag, entry);
+        }
+
+        entry.inFlight++;
+        entry.lastUsed = System.currentTimeMillis();
+
+        return entry.recognizer;
+    }
+
+    public synchronized void release(DigitalInkRecognitionModel model) {
+        Entry entry = entries.get(model.getModelIdentifier().getLanguageTag());
+
+        if (entry != null && entry.inFlight > 0) {
+            entry.inFlight--;
+            entry.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Closes recognizers that have nothing in flight and haven't been used for idleMillis.
+     * Pass 0 to close every recognizer that isn't busy. Returns how many were closed.
+     */
+    public synchronized int closeIdle(long idleMillis) {
+        long now = System.currentTimeMillis();
+        int closed = 0;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (entry.inFlight == 0 && now - entry.lastUsed >= idleMillis) {
+                entry.recognizer.close();
+                iterator.remove();
+                closed++;
+            }
+        }
+
+        return closed;
+    }
+
+    /**
+     * Closes the recognizer for one model, e.g. before the model is deleted. Returns false and
+     * leaves it open if a recognition is in flight, true if it was closed or wasn't open.
+     */
+    public synchronized boolean close(String langTag) {
+        Entry entry = entries.get(langTag);
+
+        if (entry == null) {
+            return true;
+        }
+
+        if (entry.inFlight > 0) {
+            return false;
+        }
+
+        entry.recognizer.close();
+        entries.remove(langTag);
+
+        return true;
+    }
+
+    /**
+     * Closes every recognizer, busy or not. Only for when the plugin is going away.
+     */
+    public synchronized void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.recognizer.close();
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,235 @@
+package com.spoken.app.digitalink;
+
+import com.google.mlkit.vision.digitalink.recognition.Ink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the strokes logged since the last erase().
+ *
+ * Under memory pressure or while the app is in the background the strokes can be spilled to a
+ * file and dropped from memory. The file is written on a background thread and the strokes stay in
+ * memory until it's done; they are read back transparently the next time they're needed.
+ *
+ * A spill left behind by a previous process is only read back through restoreLeftover(), so a
+ * normal relaunch starts with no strokes. Logging or erasing strokes first discards it.
+ */
+public class StrokeStore {
+    // bump if the spill file layout changes, older files are then ignored
+    private static final int SPILL_VERSION = 1;
+
+    private final File spillFile;
+
+    // all file writes and deletes, in order
+    private final ExecutorService io;
+
+    private List<Ink.Stroke> strokes = new ArrayList<>();
+
+    // bumped on every change to the strokes, a spill written for an older version is thrown away
+    private int version = 0;
+
+    // true while a spill is being written
+    private boolean spilling = false;
+
+    // true while the strokes only live in the spill file
+    private boolean spilled = false;
+
+    // true while the spill file is one left behind by a previous process
+    private boolean leftover;
+
+    public StrokeStore(File spillFile) {
+        this(spillFile, Executors.newSingleThreadExecutor());
+    }
+
+    // tests pass their own executor to control when file work runs
+    StrokeStore(File spillFile, ExecutorService io) {
+        this.spillFile = spillFile;
+        this.io = io;
+        this.leftover = spillFile.exists();
+    }
+
+    public synchronized void add(Ink.Stroke stroke) {
+        discardLeftover();
+        restore();
+
+        strokes.add(stroke);
+        version++;
+    }
+
+    public synchronized void clear() {
+        discardLeftover();
+
+        strokes = new ArrayList<>();
+        spilled = false;
+        version++;
+
+        io.execute(spillFile::delete);
+    }
+
+    public synchronized Ink buildInk() {
+        restore();
+
+        Ink.Builder inkBuilder = Ink.builder();
+        for (Ink.Stroke stroke : strokes) {
+            inkBuilder.addStroke(stroke);
+        }
+
+        return inkBuilder.build();
+    }
+
+    /**
+     * Reads back the strokes spilled by a previous process, ahead of any strokes in memory.
+     * Returns how many strokes were restored, 0 if there was nothing left over.
+     */
+    public synchronized int restoreLeftover() {
+        if (!leftover) {
+            return 0;
+        }
+        leftover = false;
+
+        List<Ink.Stroke> restored = read();
+        int count = restored.size();
+        spillFile.delete();
+
+        restored.addAll(strokes);
+        strokes = restored;
+        version++;
+
+        return count;
+    }
+
+    /**
+     * Writes the strokes to the spill file in the background and drops them from memory once the
+     * write is done. If writing fails, or the strokes change in the meantime, they simply stay in
+     * memory.
+     */
+    public synchronized void spill() {
+        if (spilling || spilled || strokes.isEmpty()) {
+            return;
+        }
+
+        // the file is about to be overwritten
+        leftover = false;
+        spilling = true;
+
+        List<Ink.Stroke> snapshot = new ArrayList<>(strokes);
+        int snapshotVersion = version;
+
+        io.execute(() -> {
+            boolean written = write(snapshot);
+
+            synchronized (this) {
+                spilling = false;
+
+                if (written && version == snapshotVersion) {
+                    strokes = new ArrayList<>();
+                    spilled = true;
+                }
+                else {
+                    spillFile.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Lets pending writes finish, then stops the background thread. The store can't spill afterwards.
+     */
+    public void shutdown() {
+        io.shutdown();
+    }
+
+    private void discardLeftover() {
+        if (leftover) {
+            leftover = false;
+            io.execute(spillFile::delete);
+        }
+    }
+
+    // reads spilled strokes back into memory
+    private void restore() {
+        if (!spilled) {
+            return;
+        }
+        spilled = false;
+
+        List<Ink.Stroke> restored = read();
+        spillFile.delete();
+
+        // strokes logged before the restore (none normally) stay after the restored ones
+        restored.addAll(strokes);
+        strokes = restored;
+    }
+
+    private boolean write(List<Ink.Stroke> toWrite) {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(spillFile)))) {
+            out.writeInt(SPILL_VERSION);
+            out.writeInt(toWrite.size());
+
+            for (Ink.Stroke stroke : toWrite) {
+                List<Ink.Point> points = stroke.getPoints();
+                out.writeInt(points.size());
+
+                for (Ink.Point point : points) {
+                    out.writeFloat(point.getX());
+                    out.writeFloat(point.getY());
+
+                    Long t = point.getTimestamp();
+                    out.writeBoolean(t != null);
+                    if (t != null) {
+                        out.writeLong(t);
+                    }
+                }
+            }
+        }
+        catch (IOException error) {
+            return false;
+        }
+
+        return true;
+    }
+
+    // an unreadable file counts as no strokes
+    private List<Ink.Stroke> read() {
+        List<Ink.Stroke> restored = new ArrayList<>();
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(spillFile)))) {
+            if (in.readInt() == SPILL_VERSION) {
+                int strokeCount = in.readInt();
+
+                for (int i = 0; i < strokeCount; i++) {
+                    Ink.Stroke.Builder strokeBuilder = Ink.Stroke.builder();
+                    int pointCount = in.readInt();
+
+                    for (int j = 0; j < pointCount; j++) {
+                        float x = in.readFloat();
+                        float y = in.readFloat();
+
+                        strokeBuilder.addPoint(in.readBoolean()
+                                ? Ink.Point.create(x, y, in.readLong())
+                                : Ink.Point.create(x, y));
+                    }
+                    restored.add(strokeBuilder.build());
+                }
+            }
+        }
+        catch (IOException error) {
+            restored.clear();
+        }
+
+        return restored;
+    }
+}
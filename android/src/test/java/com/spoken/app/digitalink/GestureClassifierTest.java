@@ -0,0 +1,158 @@
+package com.spoken.app.digitalink;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class GestureClassifierTest {
+    // writing area used for every stroke below
+    private static final float W = 1000f;
+    private static final float H = 500f;
+
+    // confidence doRecognition needs by default to skip text recognition
+    private static final float DEFAULT = DigitalInkPlugin.DEFAULT_GESTURE_CONFIDENCE;
+
+    private final GestureClassifier classifier = new GestureClassifier();
+
+    // polyline through the given corners, with `steps` points per segment
+    private static float[][] polyline(int steps, float... corners) {
+        int segments = corners.length / 2 - 1;
+        float[] xs = new float[segments * steps + 1];
+        float[] ys = new float[segments * steps + 1];
+
+        for (int s = 0; s < segments; s++) {
+            float x0 = corners[s * 2], y0 = corners[s * 2 + 1];
+            float x1 = corners[s * 2 + 2], y1 = corners[s * 2 + 3];
+
+            for (int i = 0; i < steps; i++) {
+                float t = (float) i / steps;
+                xs[s * steps + i] = x0 + (x1 - x0) * t;
+                ys[s * steps + i] = y0 + (y1 - y0) * t;
+            }
+        }
+        xs[xs.length - 1] = corners[corners.length - 2];
+        ys[ys.length - 1] = corners[corners.length - 1];
+
+        return new float[][] { xs, ys };
+    }
+
+    // closed circle starting and ending at its top
+    private static float[][] circle(float cx, float cy, float r, int points) {
+        float[] xs = new float[points + 1];
+        float[] ys = new float[points + 1];
+
+        for (int i = 0; i <= points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            xs[i] = cx + (float) (r * Math.sin(angle));
+            ys[i] = cy - (float) (r * Math.cos(angle));
+        }
+        xs[points] = xs[0];
+        ys[points] = ys[0];
+
+        return new float[][] { xs, ys };
+    }
+
+    private GestureClassifier.Gesture classify(float[][] stroke) {
+        return classifier.classify(stroke[0], stroke[1], W, H);
+    }
+
+    @Test
+    public void noPoints_isNotClassified() {
+        assertNull(classifier.classify(new float[0], new float[0], W, H));
+    }
+
+    @Test
+    public void tap() {
+        GestureClassifier.Gesture gesture = classify(new float[][] { { 500f }, { 250f } });
+
+        assertEquals(GestureClassifier.TAP, gesture.type);
+        assertEquals(1f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void tap_withSlightJitter() {
+        GestureClassifier.Gesture gesture = classify(polyline(2, 500f, 250f, 501f, 250f));
+
+        assertEquals(GestureClassifier.TAP, gesture.type);
+        assertEquals(0.96f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void strikeThrough() {
+        GestureClassifier.Gesture gesture = classify(polyline(20, 100f, 250f, 600f, 255f));
+
+        assertEquals(GestureClassifier.STRIKE_THROUGH, gesture.type);
+        assertEquals(0.96f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void scratchOut() {
+        GestureClassifier.Gesture gesture = classify(polyline(5,
+                300f, 240f, 500f, 245f, 300f, 250f, 500f, 255f,
+                300f, 260f, 500f, 255f, 300f, 250f, 500f, 245f));
+
+        assertEquals(GestureClassifier.SCRATCH_OUT, gesture.type);
+        assertEquals(1f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void checkMark() {
+        GestureClassifier.Gesture gesture = classify(polyline(10, 100f, 200f, 130f, 230f, 190f, 170f));
+
+        assertEquals(GestureClassifier.CHECK_MARK, gesture.type);
+        assertEquals(1f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void dash_isNotAGesture() {
+        // a handwritten "-" is flat and straight, but far too short for a strike-through
+        GestureClassifier.Gesture gesture = classify(polyline(10, 480f, 250f, 520f, 250f));
+
+        assertEquals(0f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void dot_isNotAGesture() {
+        // a handwritten "." has visible extent, unlike a tap
+        GestureClassifier.Gesture gesture = classify(circle(500f, 250f, 6f, 12));
+
+        assertEquals(GestureClassifier.TAP, gesture.type);
+        assertEquals(0.24f, gesture.confidence, 0.01f);
+        assertTrue(gesture.confidence < DEFAULT);
+    }
+
+    @Test
+    public void v_isNotAGesture() {
+        // legs of equal length that end level with the start aren't a check mark
+        GestureClassifier.Gesture gesture = classify(polyline(10, 100f, 100f, 130f, 160f, 160f, 100f));
+
+        assertEquals(GestureClassifier.CHECK_MARK, gesture.type);
+        assertEquals(0.25f, gesture.confidence, 0.01f);
+        assertTrue(gesture.confidence < DEFAULT);
+    }
+
+    @Test
+    public void closedLoop_isNotAGesture() {
+        // an "o" ends where it started (chord == 0)
+        GestureClassifier.Gesture gesture = classify(circle(500f, 250f, 30f, 36));
+
+        assertEquals(0f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void verticalStroke_isNotAGesture() {
+        // an "l" or "1"
+        GestureClassifier.Gesture gesture = classify(polyline(20, 500f, 100f, 500f, 300f));
+
+        assertEquals(0f, gesture.confidence, 0.01f);
+    }
+
+    @Test
+    public void strikeThrough_withoutWritingArea_usesAbsoluteLength() {
+        float[][] stroke = polyline(20, 100f, 250f, 600f, 255f);
+        GestureClassifier.Gesture gesture = classifier.classify(stroke[0], stroke[1], 0f, 0f);
+
+        assertEquals(GestureClassifier.STRIKE_THROUGH, gesture.type);
+        assertEquals(0.96f, gesture.confidence, 0.01f);
+    }
+}
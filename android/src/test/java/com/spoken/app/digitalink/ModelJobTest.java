@@ -0,0 +1,169 @@
+package com.spoken.app.digitalink;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ModelJobTest {
+
+    private static List<JSObject> events(RecordingCall call) {
+        List<JSObject> events = new ArrayList<>(call.resolved);
+        events.addAll(call.rejectedData);
+        return events;
+    }
+
+    private static int doneCount(RecordingCall call) {
+        int done = 0;
+        for (JSObject event : events(call)) {
+            if (event.optBoolean("done")) {
+                done++;
+            }
+        }
+        return done;
+    }
+
+    @Test
+    public void start_sendsProgressWithoutDone() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(2, "Processing array of models...");
+
+        assertEquals(1, call.resolved.size());
+        assertFalse(call.resolved.get(0).optBoolean("done"));
+        assertEquals(0, call.releases);
+    }
+
+    @Test
+    public void completions_onlyLastOneIsDone() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(3, "Processing array of models...");
+
+        // completions arrive in whatever order the tasks finish, failures included
+        job.complete(true, "fr-FR model deleted successfully.");
+        job.complete(false, "Cannot delete de-DE model, it is not downloaded.");
+        assertEquals(0, doneCount(call));
+        assertEquals(0, call.releases);
+
+        job.complete(true, "en-US model deleted successfully.");
+
+        assertEquals(1, doneCount(call));
+        assertTrue(call.resolved.get(call.resolved.size() - 1).optBoolean("done"));
+        assertEquals(1, call.releases);
+    }
+
+    @Test
+    public void failedLastCompletion_isDoneAndReleases() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(2, "Processing array of models...");
+        job.complete(true, "fr-FR model was downloaded successfully.");
+        job.complete(false, "xx-XX is not a valid model.");
+
+        assertEquals(1, call.rejected.size());
+        assertEquals("xx-XX is not a valid model.", call.rejected.get(0));
+        assertTrue(call.rejectedData.get(0).optBoolean("done"));
+        assertEquals(1, doneCount(call));
+        assertEquals(1, call.releases);
+    }
+
+    @Test
+    public void noEventsAfterRelease() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(1, "Processing singular model fr-FR...");
+        job.complete(true, "fr-FR model was downloaded successfully.");
+        int answers = call.answers();
+
+        job.complete(true, "late completion");
+        job.finish(false, "late failure");
+
+        assertEquals(answers, call.answers());
+        assertEquals(1, doneCount(call));
+        assertEquals(1, call.releases);
+    }
+
+    @Test
+    public void finish_endsJobWithPendingUnits() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(3, "Deleting models...");
+        job.complete(true, "fr-FR model deleted successfully.");
+        job.finish(false, "Task failed.");
+        job.complete(true, "de-DE model deleted successfully.");
+
+        assertEquals(1, doneCount(call));
+        assertEquals(1, call.releases);
+        assertEquals(3, call.answers());
+    }
+
+    @Test
+    public void emptyJob_failsWithRealMessage() {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        job.start(0, "Processing array of models...");
+
+        assertEquals(0, call.resolved.size());
+        assertEquals(1, call.rejected.size());
+        assertEquals("No models given.", call.rejected.get(0));
+        assertTrue(call.rejectedData.get(0).optBoolean("done"));
+        assertEquals(1, call.releases);
+    }
+
+    @Test
+    public void completionsFromTwoThreads_noneLostAndDoneIsLast() throws InterruptedException {
+        RecordingCall call = new RecordingCall();
+        ModelJob job = new ModelJob(call, null);
+
+        int perThread = 2000;
+        job.start(perThread * 2, "Processing array of models...");
+
+        // like invalid tags failing on the plugin thread while downloads finish on the main thread
+        CountDownLatch go = new CountDownLatch(1);
+        Thread failures = new Thread(() -> {
+            awaitQuietly(go);
+            for (int i = 0; i < perThread; i++) {
+                job.complete(false, "xx-XX is not a valid model.");
+            }
+        });
+        Thread successes = new Thread(() -> {
+            awaitQuietly(go);
+            for (int i = 0; i < perThread; i++) {
+                job.complete(true, "fr-FR model was downloaded successfully.");
+            }
+        });
+
+        failures.start();
+        successes.start();
+        go.countDown();
+        failures.join();
+        successes.join();
+
+        // the start event plus one per unit
+        assertEquals(perThread * 2 + 1, call.sent.size());
+        assertEquals(1, doneCount(call));
+        assertTrue(call.sent.get(call.sent.size() - 1).optBoolean("done"));
+        assertEquals(1, call.releases);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
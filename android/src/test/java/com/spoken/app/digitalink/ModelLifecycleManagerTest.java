@@ -0,0 +1,71 @@
+package com.spoken.app.digitalink;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class ModelLifecycleManagerTest {
+
+    @Test
+    public void evictionOrder_oldestFirst() {
+        Map<String, Long> lastActive = new HashMap<>();
+        lastActive.put("fr-FR", 300L);
+        lastActive.put("de-DE", 100L);
+        lastActive.put("es-ES", 200L);
+
+        List<String> order = ModelLifecycleManager.evictionOrder(lastActive, Collections.emptySet(), null);
+
+        assertEquals(Arrays.asList("de-DE", "es-ES", "fr-FR"), order);
+    }
+
+    @Test
+    public void evictionOrder_neverUsedGoesFirst() {
+        Map<String, Long> lastActive = new HashMap<>();
+        lastActive.put("fr-FR", 300L);
+        lastActive.put("de-DE", 0L);
+
+        List<String> order = ModelLifecycleManager.evictionOrder(lastActive, Collections.emptySet(), null);
+
+        assertEquals("de-DE", order.get(0));
+    }
+
+    @Test
+    public void evictionOrder_freshDownloadGoesLast() {
+        // ja-JP was never used for recognition, but it was downloaded after the others were last used
+        Map<String, Long> lastActive = new HashMap<>();
+        lastActive.put("fr-FR", 100L);
+        lastActive.put("de-DE", 200L);
+        lastActive.put("ja-JP", 500L);
+
+        List<String> order = ModelLifecycleManager.evictionOrder(lastActive, Collections.emptySet(), null);
+
+        assertEquals("ja-JP", order.get(order.size() - 1));
+    }
+
+    @Test
+    public void evictionOrder_leavesOutPinnedAndDefault() {
+        Map<String, Long> lastActive = new HashMap<>();
+        lastActive.put("en-US", 0L);
+        lastActive.put("fr-FR", 0L);
+        lastActive.put("de-DE", 100L);
+
+        List<String> order = ModelLifecycleManager.evictionOrder(
+                lastActive, new HashSet<>(Collections.singletonList("fr-FR")), "en-US");
+
+        assertEquals(Collections.singletonList("de-DE"), order);
+    }
+
+    @Test
+    public void evictionOrder_nothingDownloaded() {
+        List<String> order = ModelLifecycleManager.evictionOrder(new HashMap<>(), Collections.emptySet(), "en-US");
+
+        assertTrue(order.isEmpty());
+    }
+}
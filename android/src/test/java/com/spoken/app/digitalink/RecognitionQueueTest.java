@@ -0,0 +1,205 @@
+package com.spoken.app.digitalink;
+
+import static org.junit.Assert.*;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecognitionQueueTest {
+    private final RecognitionQueue queue = new RecognitionQueue();
+
+    // requests whose work has started, in start order; they stay running until the test settles them
+    private final List<RecognitionQueue.Request> started = new ArrayList<>();
+
+    private RecordingCall submit(String requestId, String priority) {
+        RecordingCall call = new RecordingCall();
+        queue.submit(call, requestId, priority, started::add);
+        return call;
+    }
+
+    private static JSObject result(String text) {
+        JSObject res = new JSObject();
+        res.put("ok", true);
+        res.put("msg", text);
+        return res;
+    }
+
+    @Test
+    public void interactiveLimit_holdsExtraRequestsUntilASlotFrees() {
+        queue.setLimits(2, 1);
+
+        RecordingCall first = submit(null, RecognitionQueue.INTERACTIVE);
+        submit(null, RecognitionQueue.INTERACTIVE);
+        RecordingCall third = submit(null, RecognitionQueue.INTERACTIVE);
+
+        assertEquals(2, started.size());
+
+        started.get(0).resolve(result("first"));
+
+        assertEquals(1, first.resolved.size());
+        assertEquals(3, started.size());
+        assertSame(third, started.get(2).call);
+    }
+
+    @Test
+    public void settlingTwice_freesTheSlotOnce() {
+        queue.setLimits(1, 1);
+
+        submit(null, RecognitionQueue.INTERACTIVE);
+        submit(null, RecognitionQueue.INTERACTIVE);
+        submit(null, RecognitionQueue.INTERACTIVE);
+
+        RecognitionQueue.Request first = started.get(0);
+        first.resolve(result("first"));
+        first.reject("late failure");
+
+        // the second settle must not hand out another slot
+        assertEquals(2, started.size());
+        assertEquals(1, ((RecordingCall) first.call).answers());
+    }
+
+    @Test
+    public void background_waitsForInteractiveWork() {
+        queue.setLimits(1, 1);
+
+        submit(null, RecognitionQueue.INTERACTIVE);
+        RecordingCall background = submit(null, RecognitionQueue.BACKGROUND);
+        RecordingCall interactive = submit(null, RecognitionQueue.INTERACTIVE);
+
+        assertEquals(1, started.size());
+
+        // the interactive request queued after the background one still goes first
+        started.get(0).resolve(result("first"));
+        assertEquals(2, started.size());
+        assertSame(interactive, started.get(1).call);
+
+        started.get(1).resolve(result("second"));
+        assertEquals(3, started.size());
+        assertSame(background, started.get(2).call);
+    }
+
+    @Test
+    public void runningBackground_isNotStopped_butNextOneWaits() {
+        queue.setLimits(1, 2);
+
+        submit(null, RecognitionQueue.BACKGROUND);
+        submit(null, RecognitionQueue.INTERACTIVE);
+        RecordingCall secondBackground = submit(null, RecognitionQueue.BACKGROUND);
+
+        // background slots are free, but interactive work is running
+        assertEquals(2, started.size());
+
+        started.get(1).resolve(result("interactive"));
+        assertEquals(3, started.size());
+        assertSame(secondBackground, started.get(2).call);
+    }
+
+    @Test
+    public void sameRequestId_supersedesPendingRequest() {
+        queue.setLimits(1, 1);
+
+        RecordingCall old = submit("stroke-1", RecognitionQueue.INTERACTIVE);
+        RecognitionQueue.Request oldRequest = started.get(0);
+        RecordingCall replacement = submit("stroke-1", RecognitionQueue.INTERACTIVE);
+
+        assertEquals(1, old.rejected.size());
+
+        // the old one still holds its slot until its work reports back, then must stay silent
+        assertEquals(1, started.size());
+        oldRequest.resolve(result("stale"));
+
+        assertEquals(0, old.resolved.size());
+        assertEquals(2, started.size());
+        assertSame(replacement, started.get(1).call);
+    }
+
+    @Test
+    public void cancelWhileRunning_lateResolveIsNoOpAndFreesSlot() {
+        queue.setLimits(1, 1);
+
+        RecordingCall running = submit("grade-7", RecognitionQueue.INTERACTIVE);
+        RecordingCall queued = submit(null, RecognitionQueue.INTERACTIVE);
+
+        assertTrue(queue.cancel("grade-7", "cancelled"));
+        assertEquals(1, running.rejected.size());
+        assertTrue(started.get(0).isSettled());
+
+        started.get(0).resolve(result("stale"));
+
+        assertEquals(0, running.resolved.size());
+        assertEquals(1, running.answers());
+        assertEquals(2, started.size());
+        assertSame(queued, started.get(1).call);
+    }
+
+    @Test
+    public void cancelWhileQueued_neverStarts() {
+        queue.setLimits(1, 1);
+
+        submit(null, RecognitionQueue.INTERACTIVE);
+        RecordingCall queued = submit("grade-8", RecognitionQueue.BACKGROUND);
+
+        assertTrue(queue.cancel("grade-8", "cancelled"));
+        assertFalse(queue.cancel("grade-8", "cancelled"));
+
+        started.get(0).resolve(result("first"));
+
+        assertEquals(1, started.size());
+        assertEquals(1, queued.rejected.size());
+    }
+
+    @Test
+    public void cancelAll_rejectsQueuedAndRunning() {
+        queue.setLimits(1, 1);
+
+        RecordingCall running = submit(null, RecognitionQueue.INTERACTIVE);
+        RecordingCall queued = submit(null, RecognitionQueue.BACKGROUND);
+
+        queue.cancelAll("destroyed");
+        started.get(0).resolve(result("stale"));
+
+        assertEquals(1, running.rejected.size());
+        assertEquals(0, running.resolved.size());
+        assertEquals(1, queued.rejected.size());
+        assertEquals(1, started.size());
+    }
+
+    @Test
+    public void raisingLimits_startsQueuedRequests() {
+        queue.setLimits(1, 1);
+
+        submit(null, RecognitionQueue.INTERACTIVE);
+        submit(null, RecognitionQueue.INTERACTIVE);
+        assertEquals(1, started.size());
+
+        queue.setLimits(2, 1);
+        assertEquals(2, started.size());
+    }
+
+    @Test
+    public void synchronouslySettlingWork_drainsWithoutRecursion() {
+        queue.setLimits(1, 1);
+
+        // hold the only slot so the rest pile up in the queue
+        submit(null, RecognitionQueue.INTERACTIVE);
+
+        int requests = 20000;
+        List<Integer> depths = new ArrayList<>();
+
+        for (int i = 0; i < requests; i++) {
+            queue.submit(new RecordingCall(), null, RecognitionQueue.INTERACTIVE, request -> {
+                depths.add(Thread.currentThread().getStackTrace().length);
+                request.resolve(result("gesture"));
+            });
+        }
+
+        started.get(0).resolve(result("first"));
+
+        assertEquals(requests, depths.size());
+        assertEquals(depths.get(0), depths.get(requests - 1));
+    }
+}
@@ -0,0 +1,50 @@
+package com.spoken.app.digitalink;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginCall;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PluginCall that records what it was answered with instead of talking to a bridge.
+ */
+public class RecordingCall extends PluginCall {
+    public final List<JSObject> resolved = new ArrayList<>();
+    public final List<String> rejected = new ArrayList<>();
+
+    // data attached to each rejection, in the same order as rejected
+    public final List<JSObject> rejectedData = new ArrayList<>();
+
+    // resolved and rejection data together, in the order they were sent
+    public final List<JSObject> sent = new ArrayList<>();
+
+    public int releases = 0;
+
+    public RecordingCall() {
+        super(null, "DigitalInk", "callback", "test", new JSObject());
+    }
+
+    public int answers() {
+        return resolved.size() + rejected.size();
+    }
+
+    @Override
+    public void resolve(JSObject data) {
+        resolved.add(data);
+        sent.add(data);
+    }
+
+    @Override
+    public void reject(String msg, String code, Exception ex, JSObject data) {
+        rejected.add(msg);
+        rejectedData.add(data);
+        sent.add(data);
+    }
+
+    @Override
+    public void release(Bridge bridge) {
+        releases++;
+    }
+}
@@ -0,0 +1,248 @@
+package com.spoken.app.digitalink;
+
+import static org.junit.Assert.*;
+
+import com.google.mlkit.vision.digitalink.recognition.Ink;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class StrokeStoreTest {
+
+    // holds file work until the test runs it, standing in for the background thread
+    private static class ManualExecutor extends AbstractExecutorService {
+        private final List<Runnable> pending = new ArrayList<>();
+        private boolean shutdown = false;
+
+        void runPending() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && pending.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+
+    private final ManualExecutor io = new ManualExecutor();
+
+    private static File spillFile() throws IOException {
+        File file = File.createTempFile("digitalink-strokes", ".bin");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static Ink.Stroke stroke(float x) {
+        return Ink.Stroke.builder()
+                .addPoint(Ink.Point.create(x, 1f, 1000L))
+                .addPoint(Ink.Point.create(x + 1f, 2f))
+                .build();
+    }
+
+    // a spill file written by an earlier process
+    private File leftoverOf(Ink.Stroke... strokes) throws IOException {
+        File file = spillFile();
+        ManualExecutor previous = new ManualExecutor();
+        StrokeStore store = new StrokeStore(file, previous);
+
+        for (Ink.Stroke stroke : strokes) {
+            store.add(stroke);
+        }
+        store.spill();
+        previous.runPending();
+
+        assertTrue(file.exists());
+        return file;
+    }
+
+    @Test
+    public void spill_roundTripsPointsWithAndWithoutTimestamps() throws IOException {
+        File file = spillFile();
+        StrokeStore store = new StrokeStore(file, io);
+
+        store.add(Ink.Stroke.builder()
+                .addPoint(Ink.Point.create(1.5f, -2.25f, 1234567890123L))
+                .addPoint(Ink.Point.create(3f, 4f))
+                .build());
+        store.add(stroke(10f));
+
+        store.spill();
+        io.runPending();
+        assertTrue(file.exists());
+
+        List<Ink.Stroke> strokes = store.buildInk().getStrokes();
+        assertEquals(2, strokes.size());
+
+        Ink.Point timed = strokes.get(0).getPoints().get(0);
+        assertEquals(1.5f, timed.getX(), 0f);
+        assertEquals(-2.25f, timed.getY(), 0f);
+        assertEquals(Long.valueOf(1234567890123L), timed.getTimestamp());
+
+        Ink.Point untimed = strokes.get(0).getPoints().get(1);
+        assertEquals(3f, untimed.getX(), 0f);
+        assertEquals(4f, untimed.getY(), 0f);
+        assertNull(untimed.getTimestamp());
+
+        assertEquals(10f, strokes.get(1).getPoints().get(0).getX(), 0f);
+
+        // reading the strokes back removes the file
+        io.runPending();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void spill_keepsStrokesUntilWritten() throws IOException {
+        File file = spillFile();
+        StrokeStore store = new StrokeStore(file, io);
+
+        store.add(stroke(1f));
+        store.spill();
+
+        assertFalse(file.exists());
+        assertEquals(1, store.buildInk().getStrokes().size());
+
+        io.runPending();
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void addDuringSpill_dropsTheSpill() throws IOException {
+        File file = spillFile();
+        StrokeStore store = new StrokeStore(file, io);
+
+        store.add(stroke(1f));
+        store.spill();
+        store.add(stroke(2f));
+        io.runPending();
+
+        assertFalse(file.exists());
+
+        List<Ink.Stroke> strokes = store.buildInk().getStrokes();
+        assertEquals(2, strokes.size());
+        assertEquals(2f, strokes.get(1).getPoints().get(0).getX(), 0f);
+    }
+
+    @Test
+    public void clearDuringSpill_leavesNothing() throws IOException {
+        File file = spillFile();
+        StrokeStore store = new StrokeStore(file, io);
+
+        store.add(stroke(1f));
+        store.spill();
+        store.clear();
+        io.runPending();
+
+        assertFalse(file.exists());
+        assertTrue(store.buildInk().getStrokes().isEmpty());
+    }
+
+    @Test
+    public void leftover_isNotLoadedOnColdStart() throws IOException {
+        File file = leftoverOf(stroke(1f), stroke(2f));
+        StrokeStore store = new StrokeStore(file, io);
+
+        assertTrue(store.buildInk().getStrokes().isEmpty());
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void restoreLeftover_readsStrokesInOrder() throws IOException {
+        File file = leftoverOf(stroke(1f), stroke(2f));
+        StrokeStore store = new StrokeStore(file, io);
+
+        assertEquals(2, store.restoreLeftover());
+        assertFalse(file.exists());
+
+        List<Ink.Stroke> strokes = store.buildInk().getStrokes();
+        assertEquals(1f, strokes.get(0).getPoints().get(0).getX(), 0f);
+        assertEquals(2f, strokes.get(1).getPoints().get(0).getX(), 0f);
+
+        // only once
+        assertEquals(0, store.restoreLeftover());
+    }
+
+    @Test
+    public void logging_discardsLeftover() throws IOException {
+        File file = leftoverOf(stroke(1f));
+        StrokeStore store = new StrokeStore(file, io);
+
+        store.add(stroke(5f));
+        io.runPending();
+
+        assertFalse(file.exists());
+        assertEquals(0, store.restoreLeftover());
+        assertEquals(1, store.buildInk().getStrokes().size());
+    }
+
+    @Test
+    public void corruptFile_countsAsNoStrokes() throws IOException {
+        File file = spillFile();
+
+        // right version, but cut off in the middle of a stroke
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(1);
+            out.writeInt(3);
+            out.writeInt(2);
+            out.writeFloat(1f);
+        }
+
+        StrokeStore store = new StrokeStore(file, io);
+
+        assertEquals(0, store.restoreLeftover());
+        assertTrue(store.buildInk().getStrokes().isEmpty());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void otherVersionFile_isIgnored() throws IOException {
+        File file = spillFile();
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(99);
+            out.writeInt(1);
+        }
+
+        StrokeStore store = new StrokeStore(file, io);
+
+        assertEquals(0, store.restoreLeftover());
+        assertTrue(store.buildInk().getStrokes().isEmpty());
+    }
+}
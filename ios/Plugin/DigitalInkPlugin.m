@@ -12,4 +12,9 @@ CAP_PLUGIN(DigitalInkPlugin, "DigitalInk",
     CAP_PLUGIN_METHOD(getDownloadedModels, CAPPluginReturnPromise);
     CAP_PLUGIN_METHOD(downloadSingularModel, CAPPluginReturnCallback);
     CAP_PLUGIN_METHOD(downloadMultipleModels, CAPPluginReturnCallback);
+    CAP_PLUGIN_METHOD(setModelLifecyclePolicy, CAPPluginReturnPromise);
+    CAP_PLUGIN_METHOD(cancelRecognition, CAPPluginReturnPromise);
+    CAP_PLUGIN_METHOD(configureRecognitionQueue, CAPPluginReturnPromise);
+    CAP_PLUGIN_METHOD(configureResourceRelease, CAPPluginReturnPromise);
+    CAP_PLUGIN_METHOD(restoreStrokes, CAPPluginReturnPromise);
 )
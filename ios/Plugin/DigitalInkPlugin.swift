@@ -469,4 +469,24 @@ public class DigitalInkPlugin: CAPPlugin {
             call.reject("No models currently downloaded.", nil)
         }
     }
+    
+    @objc func setModelLifecyclePolicy(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+    
+    @objc func cancelRecognition(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+    
+    @objc func configureRecognitionQueue(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+    
+    @objc func configureResourceRelease(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
+    
+    @objc func restoreStrokes(_ call: CAPPluginCall) {
+        call.unimplemented("Not implemented on iOS.")
+    }
 }
@@ -25,6 +25,14 @@ export interface DigitalInkPlugin {
   * @param model singular model to use for inference
   * @param context precontext to provide. Some letters/words may be mistaken for others, use this to disambiguate expected responses.
   * @param writingArea width and height of the drawing area. Only provide for further context--i.e. if writing two lines of text.
+  * @param detectGestures (Android only) checks single strokes for taps, strike-throughs, scratch-outs and check marks first.
+  * When one is detected confidently, text recognition is skipped and 'gesture' is set in the response.
+  * @param gestureModel optional gesture/shape model tag, only consulted when the stroke geometry is ambiguous and gestureVocabulary is set. Must be downloaded.
+  * @param gestureVocabulary gesture model outputs that count as gestures, e.g. the shape labels to treat as gestures. Required to use gestureModel; anything else falls back to text.
+  * @param gestureMaxScore highest (worst) gesture model score that still counts as a gesture. Unset means any score.
+  * @param gestureConfidence confidence (0-1) the stroke geometry needs to skip text recognition. Defaults to 0.8.
+  * @param priority (Android only) 'interactive' (default) requests run before 'background' ones, which wait while interactive work is pending.
+  * @param requestId (Android only) ID to cancel the request with cancelRecognition(). A new request with the same ID cancels the pending one.
   */
   doRecognition(options: RecognitionOptions)
   :Promise<{
@@ -32,6 +40,7 @@ export interface DigitalInkPlugin {
     msg: string,
     results: { candidates: string[], scores: number[] },
     options: RecognitionOptions,
+    gesture?: Gesture,
   }>
 
   /**
@@ -54,11 +63,57 @@ export interface DigitalInkPlugin {
 
   /**
    * Deletes a singular/collection of models downloaded to the device, or all models.
+   * Exactly one callback has the 'done' property set to true, after which no more callbacks are sent.
    * @param options delete all models, a singular model, or an array of models.
    */
   deleteModel(options: DeleteModelOptions, callback: DeleteModelCallback): Promise<CallbackID>
 
-  getDownloadedModels(): Promise<{ok: true, msg: string, models: string[]}>
+  /**
+   * Cancels a queued or running recognition request (Android only).
+   * The cancelled doRecognition() call is rejected and never resolves afterwards.
+   * @param options requestId given to doRecognition().
+   */
+  cancelRecognition(options: { requestId: string }): Promise<{ ok: boolean, msg: string }>
+
+  /**
+   * Sets how many interactive and background recognition requests may run at once (Android only).
+   * Defaults are 2 interactive and 1 background.
+   */
+  configureRecognitionQueue(options: RecognitionQueueOptions)
+  :Promise<{ ok: boolean, msg: string, interactiveConcurrency: number, backgroundConcurrency: number }>
+
+  /**
+   * Configures how native resources are released (Android only).
+   * Recognizers unused for idleTimeout ms are closed to free model memory and reopened on demand.
+   * After backgroundTimeout ms in the background, or on memory pressure, idle recognizers are closed
+   * and, if spillStrokes is set, logged strokes are moved to disk and restored when next used.
+   * Strokes still on disk when the app is closed are only kept for restoreStrokes().
+   * Defaults are 60000, 10000 and true.
+   */
+  configureResourceRelease(options: ResourceReleaseOptions)
+  :Promise<{ ok: boolean, msg: string, idleTimeout: number, backgroundTimeout: number, spillStrokes: boolean }>
+
+  /**
+   * Restores the strokes spilled to disk before the app was last closed (Android only).
+   * Must be called before logging or erasing strokes, which discard them.
+   */
+  restoreStrokes(): Promise<{ ok: boolean, msg: string, strokes: number }>
+
+  /**
+   * Returns the downloaded models along with (Android only) their usage statistics and the current lifecycle policy.
+   */
+  getDownloadedModels(): Promise<{ok: true, msg: string, models: string[], usage?: ModelUsage[], policy?: ModelLifecyclePolicy}>
+
+  /**
+   * Enables/disables managed model lifecycle mode (Android only).
+   * When managed and maxModels is above 0, least recently used models that aren't pinned are
+   * deleted in the background whenever more than maxModels models are downloaded.
+   * A download counts as a use, so a model that was just downloaded isn't the first to go.
+   * The default en-US model is always pinned, whether or not it's listed in pinned.
+   * The policy is persisted on the device.
+   * @param options managed mode flag, maximum number of downloaded models (0 = no limit), and models that are never evicted.
+   */
+  setModelLifecyclePolicy(options: ModelLifecyclePolicy): Promise<{ok: boolean, msg: string, policy: ModelLifecyclePolicy}>
 }
  
  export interface XYTOptions {
@@ -73,13 +128,50 @@ export interface DeleteModelOptions {
   models?: string[];
 }
 
+export interface ModelLifecyclePolicy {
+  managed: boolean;
+  maxModels?: number;
+  pinned?: string[];
+}
+
+export interface ModelUsage {
+  model: string;
+  lastUsed: number;
+  useCount: number;
+  pinned: boolean;
+}
+
 export interface RecognitionOptions {
   model?: string,
   context?: string,
   writingArea: {
     w: number,
     h: number
-  }
+  },
+  detectGestures?: boolean,
+  gestureModel?: string,
+  gestureConfidence?: number,
+  gestureVocabulary?: string[],
+  gestureMaxScore?: number,
+  priority?: 'interactive' | 'background',
+  requestId?: string
+}
+
+export interface ResourceReleaseOptions {
+  idleTimeout?: number,
+  backgroundTimeout?: number,
+  spillStrokes?: boolean
+}
+
+export interface RecognitionQueueOptions {
+  interactiveConcurrency?: number,
+  backgroundConcurrency?: number
+}
+
+export interface Gesture {
+  type: 'tap' | 'strike-through' | 'scratch-out' | 'check-mark' | string,
+  confidence?: number,
+  source: 'geometry' | 'model'
 }
 
  export interface Model {
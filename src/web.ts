@@ -1,5 +1,5 @@
 import { WebPlugin } from '@capacitor/core';
-import { CallbackID, DeleteModelCallback, DeleteModelOptions, Model, Models, MultipleModelCallback, RecognitionOptions, SingularModelCallback } from '.';
+import { CallbackID, DeleteModelCallback, DeleteModelOptions, Model, ModelLifecyclePolicy, Models, ModelUsage, MultipleModelCallback, RecognitionOptions, RecognitionQueueOptions, ResourceReleaseOptions, SingularModelCallback } from '.';
 
 import type { XYTOptions, DigitalInkPlugin } from './definitions';
 
@@ -150,11 +150,57 @@ export class DigitalInkWeb extends WebPlugin implements DigitalInkPlugin {
     return "WEB DEBUG CALLBACK ID DELETE"
   }
 
-  async getDownloadedModels(): Promise<{ok: true, msg: string, models: string[]}> {
+  async cancelRecognition(options: { requestId: string }): Promise<{ ok: boolean, msg: string }> {
+    return {
+      ok: false,
+      msg: "***INK WEB: This method not implemented. Request " + options.requestId + " not cancelled."
+    }
+  }
+
+  async configureRecognitionQueue(options: RecognitionQueueOptions)
+  :Promise<{ ok: boolean, msg: string, interactiveConcurrency: number, backgroundConcurrency: number }> {
+    return {
+      ok: false,
+      msg: "***INK WEB: This method not implemented.",
+      interactiveConcurrency: options.interactiveConcurrency || 0,
+      backgroundConcurrency: options.backgroundConcurrency || 0
+    }
+  }
+
+  async configureResourceRelease(options: ResourceReleaseOptions)
+  :Promise<{ ok: boolean, msg: string, idleTimeout: number, backgroundTimeout: number, spillStrokes: boolean }> {
+    return {
+      ok: false,
+      msg: "***INK WEB: This method not implemented.",
+      idleTimeout: options.idleTimeout || 0,
+      backgroundTimeout: options.backgroundTimeout || 0,
+      spillStrokes: options.spillStrokes || false
+    }
+  }
+
+  async restoreStrokes(): Promise<{ ok: boolean, msg: string, strokes: number }> {
+    return {
+      ok: false,
+      msg: "***INK WEB: This method not implemented.",
+      strokes: 0
+    }
+  }
+
+  async getDownloadedModels(): Promise<{ok: true, msg: string, models: string[], usage?: ModelUsage[], policy?: ModelLifecyclePolicy}> {
     return {
       ok: true,
       msg: "***INK WEB: No models are downloaded in web implementation.",
-      models: []
+      models: [],
+      usage: [],
+      policy: { managed: false, maxModels: 0, pinned: [] }
+    }
+  }
+
+  async setModelLifecyclePolicy(options: ModelLifecyclePolicy): Promise<{ok: boolean, msg: string, policy: ModelLifecyclePolicy}> {
+    return {
+      ok: false,
+      msg: "***INK WEB: This method not implemented.",
+      policy: options
     }
   }
 }